@@ -0,0 +1,189 @@
+package tictactoe.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the engine hot paths on a fixed corpus of mid-game positions
+ * for each board size. Each invocation works on the next position of the corpus, so
+ * the scores are averages over the whole corpus.
+ * <p>
+ * Reports operations per second; {@code -prof gc} adds the allocation rate. The search
+ * benchmark is too slow per call and too dependent on its table being emptied between
+ * calls for per-invocation setup, so it is timed in single shots of one batch covering
+ * the corpus, and also reports searched nodes per second as a secondary result.
+ * <p>
+ * Usage: {@code mvn -P jmh package && java -jar target/benchmarks.jar -prof gc}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+    // Mid-game positions per board size as rows of 'X', 'O' and '.'; X moved first and nobody has won yet
+    static final String[][] CORPUS_3 = {
+            {"X.O", ".X.", "O.."},
+            {"XO.", ".X.", "..O"},
+            {"X..", ".O.", "..X"},
+            {".X.", "OXO", "..."},
+    };
+    static final String[][] CORPUS_5 = {
+            {".....", ".XO..", "..X..", "..O..", "....."},
+            {".....", ".X.O.", "..XO.", ".O.X.", "....."},
+            {"..O..", ".XX..", "..XO.", "..O..", "....."},
+            {".....", "..X..", ".OXO.", "..X..", "...O."},
+    };
+    static final String[][] CORPUS_9 = {
+            {".........", ".........", "...O.....", "...XX....", "....XO...",
+                    "...O.X...", ".........", ".........", "........."},
+            {".........", ".........", ".........", "...XO....", "....X....",
+                    "...O.....", ".........", ".........", "........."},
+            {".........", ".........", "....O....", "...XXXO..", "....XO...",
+                    "...OX....", "....O....", ".........", "........."},
+            {".........", "..O......", "...X.....", "..OXXO...", "...XO....",
+                    "..X.O....", ".....X...", "......O..", "........."},
+    };
+
+    // Board size of the corpus being measured
+    @Param({"3", "5", "9"})
+    int size;
+
+    // Positions of the corpus, the side to move in each, and the next one to use
+    BitBoard[] positions;
+    int[] sides;
+    int next;
+    // Search depth: the depth cap of the Hard difficulty for the board size
+    int depth;
+    // Reusable buffer for getAvailableMoves
+    int[] moves;
+    // Engine providing mediumMove
+    Engine engine;
+
+    /**
+     * Searches for the search benchmark, one per corpus position, built once so the
+     * measurement covers only the search itself. Before every iteration, i.e. one batch
+     * searching each corpus position once, the searches are reset and the transposition
+     * table emptied, so every batch does the same work.
+     */
+    @State(Scope.Thread)
+    public static class Searches {
+        // Transposition table shared by the searches
+        final TranspositionTable tt = new TranspositionTable(16);
+        // Search of each corpus position, on its own copy of the position
+        Search[] searches;
+        // Index of the search the next invocation runs
+        int next;
+
+        @Setup(Level.Trial)
+        public void build(EngineBenchmark benchmark) {
+            searches = new Search[benchmark.positions.length];
+            for (int i = 0; i < searches.length; i++)
+                searches[i] = new Search(benchmark.positions[i].copy(), benchmark.sides[i], tt);
+        }
+
+        @Setup(Level.Iteration)
+        public void prepare() {
+            tt.clear();
+            for (Search search : searches) {
+                search.begin(Long.MAX_VALUE);
+                // History is kept across begin() on purpose, but would make later batches cheaper
+                for (int[] h : search.history) Arrays.fill(h, 0);
+            }
+            next = 0;
+        }
+    }
+
+    /**
+     * Nodes searched, reported by JMH as nodes per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        String[][] corpus = size == 3 ? CORPUS_3 : size == 5 ? CORPUS_5 : CORPUS_9;
+        Rules rules = Rules.forSize(size);
+        positions = new BitBoard[corpus.length];
+        sides = new int[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            positions[i] = BitBoard.parse(rules.winLength, corpus[i]);
+            sides[i] = SearchBenchmark.sideToMove(positions[i]);
+        }
+        depth = size == 3 ? 6 : size == 5 ? 4 : 2;
+        moves = new int[size * size];
+        engine = new Engine(rules);
+    }
+
+    /**
+     * @return Index of the corpus position to use in this invocation.
+     */
+    private int nextPosition() {
+        int i = next;
+        next = i + 1 == positions.length ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public void checkWin(Blackhole bh) {
+        BitBoard board = positions[nextPosition()];
+        bh.consume(board.checkWin(BitBoard.X));
+        bh.consume(board.checkWin(BitBoard.O));
+    }
+
+    @Benchmark
+    public int getAvailableMoves() {
+        return positions[nextPosition()].getAvailableMoves(moves);
+    }
+
+    @Benchmark
+    public boolean isFull() {
+        return positions[nextPosition()].isFull();
+    }
+
+    @Benchmark
+    public int mediumMove() {
+        int i = nextPosition();
+        return engine.mediumMove(positions[i], sides[i]);
+    }
+
+    /**
+     * One batch searches each corpus position once; every corpus holds four positions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 500, batchSize = 4)
+    @Measurement(iterations = 2000, batchSize = 4)
+    public int[] minimaxMoveWithAlphaBeta(Searches searches, Nodes nodes) {
+        Search search = searches.searches[searches.next];
+        searches.next = (searches.next + 1) % searches.searches.length;
+        int[] move = search.minimaxMoveWithAlphaBeta(depth);
+        nodes.nodes += search.totalNodes();
+        return move;
+    }
+}
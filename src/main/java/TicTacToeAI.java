@@ -1,36 +1,63 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import tictactoe.engine.Engine;
+import tictactoe.engine.GameState;
+import tictactoe.engine.Move;
+import tictactoe.engine.Rules;
+import tictactoe.engine.SearchStats;
 
 
 /**
  * Main class for the Tic Tac Toe game with GUI and AI opponent.
  * Supports customizable board sizes (3x3, 5x5, 9x9), player symbol selection,
  * and multiple AI difficulty levels ranging from Easy to Impossible.
+ * Game rules and the AI live in the headless {@code tictactoe.engine} package;
+ * this class only draws the board and forwards clicks.
  */
 public class TicTacToeAI extends JFrame implements ActionListener {
     // GUI buttons for each cell on the board
     JButton[][] buttons;
-    // Internal 2D array representing the game board state
+    // Character view of the board kept in sync with the buttons
     char[][] board;
+    // Game position that the AI and the win/draw checks run on
+    GameState state;
+    // AI opponent for the current rules; kept across games so its tables are reused
+    Engine engine;
     // Characters representing the human player and AI
     char player = 'X', ai = 'O';
     // Difficulty level chosen for AI play
-    String difficulty = "Hard";
+    String difficulty = Engine.HARD;
     // Board size (e.g. 3, 5, 9)
     int boardSize = 3;
     // Number of consecutive marks required to win (3 for 3x3, 4 for 5x5, 5 for 9x9)
     int winLength = 3;
 
+    // Background thread running AI searches so the Event Dispatch Thread stays responsive
+    final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "AI search");
+        t.setDaemon(true);
+        // Leave the Event Dispatch Thread priority over the search when cores are scarce
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+    // True while the AI is choosing a move in the background
+    boolean thinking;
+
     // Dropdown selectors for board size, player symbol, and AI difficulty
     JComboBox<String> sizeBox;
     JComboBox<String> symbolBox;
     JComboBox<String> difficultyBox;
+    // Stops a running AI search and plays the best move found so far
+    JButton moveNowButton;
     // Panel holding the game board buttons
     JPanel boardPanel;
+    // Optional status bar showing the work done for the AI's last move
+    JLabel statusBar;
+    JCheckBox statsBox;
 
     /**
      * Constructor initializes the JFrame window, control panels,
@@ -45,7 +72,8 @@ public class TicTacToeAI extends JFrame implements ActionListener {
         // Panel at top with dropdown selectors for difficulty, size, and player symbol
         JPanel topPanel = new JPanel();
 
-        difficultyBox = new JComboBox<>(new String[]{"Easy", "Medium", "Hard", "Impossible"});
+        difficultyBox = new JComboBox<>(Engine.DIFFICULTIES);
+        difficultyBox.setSelectedItem(difficulty);
         difficultyBox.addActionListener(e -> difficulty = (String) difficultyBox.getSelectedItem());
 
         sizeBox = new JComboBox<>(new String[]{"3x3", "5x5", "9x9"});
@@ -71,11 +99,25 @@ public class TicTacToeAI extends JFrame implements ActionListener {
         topPanel.add(new JLabel("You Are:"));
         topPanel.add(symbolBox);
 
+        moveNowButton = new JButton("Move Now");
+        moveNowButton.setEnabled(false);
+        moveNowButton.addActionListener(e -> engine.stop());
+        topPanel.add(moveNowButton);
+
+        statsBox = new JCheckBox("Stats");
+        statsBox.addActionListener(e -> statusBar.setVisible(statsBox.isSelected()));
+        topPanel.add(statsBox);
+
         add(topPanel, BorderLayout.NORTH);
 
         boardPanel = new JPanel();
         add(boardPanel, BorderLayout.CENTER);
 
+        statusBar = new JLabel(" ");
+        statusBar.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        statusBar.setVisible(false);
+        add(statusBar, BorderLayout.SOUTH);
+
         initializeBoard();
         setVisible(true);
     }
@@ -90,6 +132,13 @@ public class TicTacToeAI extends JFrame implements ActionListener {
         boardPanel = new JPanel(new GridLayout(boardSize, boardSize));
         buttons = new JButton[boardSize][boardSize];
         board = new char[boardSize][boardSize];
+        Rules rules = new Rules(boardSize, winLength);
+        state = new GameState(rules);
+        if (engine == null || engine.rules().size != boardSize || engine.rules().winLength != winLength) {
+            engine = new Engine(rules);
+        } else {
+            engine.newGame();
+        }
         // Font size adapts to board size for readability
         Font font = new Font("Arial", Font.BOLD, Math.max(20, 300 / boardSize));
 
@@ -110,15 +159,17 @@ public class TicTacToeAI extends JFrame implements ActionListener {
     /**
      * Handles player's button click events.
      * Updates the board state if the move is valid, checks for win/draw,
-     * and triggers AI's move accordingly.
+     * and triggers AI's move accordingly. Clicks are ignored while the AI is thinking.
      */
     public void actionPerformed(ActionEvent e) {
+        if (thinking) return;
         JButton b = (JButton) e.getSource();
         for (int i = 0; i < boardSize; i++) {
             for (int j = 0; j < boardSize; j++) {
                 if (b == buttons[i][j] && board[i][j] == ' ') {
-                    makeMove(i, j, player);
-                    if (checkWin(player)) {
+                    Move move = new Move(i, j);
+                    makeMove(move, player);
+                    if (isWinningMove(move, player)) {
                         showMessage("You win!");
                         return;
                     }
@@ -127,11 +178,6 @@ public class TicTacToeAI extends JFrame implements ActionListener {
                         return;
                     }
                     aiMove();
-                    if (checkWin(ai)) {
-                        showMessage("AI wins!");
-                    } else if (isFull()) {
-                        showMessage("Draw!");
-                    }
                     return;
                 }
             }
@@ -140,162 +186,79 @@ public class TicTacToeAI extends JFrame implements ActionListener {
 
     /**
      * Executes AI's move based on the selected difficulty.
-     * Adapts the search depth to the board size to maintain performance.
+     * The engine chooses the move on the background executor while board input is
+     * locked, and the result and its search statistics are handed back to the Event
+     * Dispatch Thread. If the engine fails, the board is unlocked without a move and the
+     * error is shown in the status bar.
      */
     void aiMove() {
-        int[] move;
-        int depth;
-
-        // Depth limit adjusted per board size for responsiveness
-        switch (boardSize) {
-            case 3: depth = 6; break;
-            case 5: depth = 4; break;
-            case 9: depth = 2; break;
-            default: depth = 3;
-        }
-
-        switch (difficulty) {
-            case "Easy":
-                move = randomMove();
-                break;
-            case "Medium":
-                move = mediumMove();
-                break;
-            case "Hard":
-            case "Impossible":
-                move = minimaxMoveWithAlphaBeta(depth);
-                break;
-            default:
-                move = randomMove();
-        }
-
-        if (move != null) {
-            makeMove(move[0], move[1], ai);
-        }
-    }
-
-    /**
-     * Marks the board and GUI button with the player's move.
-     * Disables the button to prevent further input in that cell.
-     *
-     * @param row The row index where move is made.
-     * @param col The column index where move is made.
-     * @param ch  The player character ('X' or 'O').
-     */
-    void makeMove(int row, int col, char ch) {
-        board[row][col] = ch;
-        buttons[row][col].setText(String.valueOf(ch));
-        buttons[row][col].setEnabled(false);
-    }
-
-    /**
-     * Selects a random empty cell for AI's move (used in Easy difficulty).
-     *
-     * @return Coordinates [row, col] of the move.
-     */
-    int[] randomMove() {
-        List<int[]> available = getAvailableMoves();
-        if (available.isEmpty()) return null;
-        return available.get(new Random().nextInt(available.size()));
-    }
-
-    /**
-     * Medium difficulty AI attempts to win if possible,
-     * blocks the player's immediate winning moves,
-     * or falls back to a random move.
-     *
-     * @return Coordinates [row, col] of the move.
-     */
-    int[] mediumMove() {
-        for (int[] move : getAvailableMoves()) {
-            board[move[0]][move[1]] = ai;
-            if (checkWin(ai)) {
-                board[move[0]][move[1]] = ' ';
-                return move;
+        Engine engine = this.engine;
+        GameState position = state.copy();
+        char side = ai;
+        String level = difficulty;
+        setThinking(true);
+        searchExecutor.execute(() -> {
+            Move move;
+            try {
+                move = engine.chooseMove(position, side, level);
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    setThinking(false);
+                    statusBar.setText("AI failed: " + e);
+                    statusBar.setVisible(true);
+                });
+                return;
             }
-            board[move[0]][move[1]] = ' ';
-        }
-        for (int[] move : getAvailableMoves()) {
-            board[move[0]][move[1]] = player;
-            if (checkWin(player)) {
-                board[move[0]][move[1]] = ' ';
-                return move;
-            }
-            board[move[0]][move[1]] = ' ';
-        }
-        return randomMove();
+            SearchStats stats = engine.lastStats();
+            SwingUtilities.invokeLater(() -> {
+                setThinking(false);
+                statusBar.setText(stats.toString());
+                finishAiMove(move);
+            });
+        });
     }
 
     /**
-     * Uses minimax algorithm with alpha-beta pruning to find the best possible move for AI.
-     * Search depth is limited to keep computations feasible on larger boards.
+     * Plays the AI's chosen move and announces the result if the game is over.
      *
-     * @param maxDepth Maximum depth for minimax search.
-     * @return Coordinates [row, col] of the best move.
+     * @param move The move, or null if there is none.
      */
-    int[] minimaxMoveWithAlphaBeta(int maxDepth) {
-        int bestScore = Integer.MIN_VALUE;
-        int[] bestMove = null;
-        for (int[] move : getAvailableMoves()) {
-            board[move[0]][move[1]] = ai;
-            int score = minimaxABLimited(false, 1, maxDepth, Integer.MIN_VALUE, Integer.MAX_VALUE);
-            board[move[0]][move[1]] = ' ';
-            if (score > bestScore) {
-                bestScore = score;
-                bestMove = move;
-            }
+    void finishAiMove(Move move) {
+        if (move == null) return;
+        makeMove(move, ai);
+        if (isWinningMove(move, ai)) {
+            showMessage("AI wins!");
+        } else if (isFull()) {
+            showMessage("Draw!");
         }
-        return bestMove;
     }
 
     /**
-     * Implementation of the minimax algorithm with alpha-beta pruning and a depth limit.
-     * This method recursively evaluates possible moves to optimize AI decisions based on difficulty.
+     * Locks or unlocks board input and the settings while the AI is thinking.
      *
-     * @param isMax   True if current level is maximizing (AI's turn), false for minimizing (player's turn).
-     * @param depth   Current depth in the search tree.
-     * @param maxDepth Maximum depth limit for search to control computation time.
-     * @param alpha   Alpha value for pruning the maximizer's best option.
-     * @param beta    Beta value for pruning the minimizer's best option.
-     * @return Heuristic score of the board at this recursion level.
+     * @param thinking True when a search is being started, false once it has finished.
      */
-    int minimaxABLimited(boolean isMax, int depth, int maxDepth, int alpha, int beta) {
-        if (checkWin(ai)) return 10 - depth;
-        if (checkWin(player)) return depth - 10;
-        if (isFull() || depth == maxDepth) return 0;
-
-        int best = isMax ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-
-        for (int[] move : getAvailableMoves()) {
-            board[move[0]][move[1]] = isMax ? ai : player;
-            int score = minimaxABLimited(!isMax, depth + 1, maxDepth, alpha, beta);
-            board[move[0]][move[1]] = ' ';
-
-            if (isMax) {
-                best = Math.max(best, score);
-                alpha = Math.max(alpha, best);
-            } else {
-                best = Math.min(best, score);
-                beta = Math.min(beta, best);
-            }
-
-            if (beta <= alpha) break; // Prune the branch
-        }
-        return best;
+    void setThinking(boolean thinking) {
+        this.thinking = thinking;
+        boolean idle = !thinking;
+        moveNowButton.setEnabled(!idle);
+        sizeBox.setEnabled(idle);
+        symbolBox.setEnabled(idle);
+        difficultyBox.setEnabled(idle);
     }
 
     /**
-     * Returns a list of all currently empty cells on the board.
+     * Marks the board and GUI button with the player's move.
+     * Disables the button to prevent further input in that cell.
      *
-     * @return List of [row, col] pairs indicating free spots.
+     * @param move The cell where the move is made.
+     * @param ch   The player character ('X' or 'O').
      */
-    List<int[]> getAvailableMoves() {
-        List<int[]> moves = new ArrayList<>();
-        for (int i = 0; i < boardSize; i++)
-            for (int j = 0; j < boardSize; j++)
-                if (board[i][j] == ' ')
-                    moves.add(new int[]{i, j});
-        return moves;
+    void makeMove(Move move, char ch) {
+        board[move.row][move.col] = ch;
+        state.play(move, ch);
+        buttons[move.row][move.col].setText(String.valueOf(ch));
+        buttons[move.row][move.col].setEnabled(false);
     }
 
     /**
@@ -306,50 +269,19 @@ public class TicTacToeAI extends JFrame implements ActionListener {
      * @return True if player has won, false otherwise.
      */
     boolean checkWin(char ch) {
-        // Check rows for winning sequence
-        for (int i = 0; i < boardSize; i++) {
-            int count = 0;
-            for (int j = 0; j < boardSize; j++) {
-                count = (board[i][j] == ch) ? count + 1 : 0;
-                if (count >= winLength) return true;
-            }
-        }
-
-        // Check columns for winning sequence
-        for (int j = 0; j < boardSize; j++) {
-            int count = 0;
-            for (int i = 0; i < boardSize; i++) {
-                count = (board[i][j] == ch) ? count + 1 : 0;
-                if (count >= winLength) return true;
-            }
-        }
-
-        // Check diagonals (top-left to bottom-right) for winning sequence
-        for (int i = 0; i <= boardSize - winLength; i++) {
-            for (int j = 0; j <= boardSize - winLength; j++) {
-                int count = 0;
-                for (int k = 0; k < winLength; k++) {
-                    if (board[i + k][j + k] == ch) count++;
-                    else break;
-                }
-                if (count == winLength) return true;
-            }
-        }
-
-        // Check anti-diagonals (top-right to bottom-left) for winning sequence
-        for (int i = 0; i <= boardSize - winLength; i++) {
-            for (int j = winLength - 1; j < boardSize; j++) {
-                int count = 0;
-                for (int k = 0; k < winLength; k++) {
-                    if (board[i + k][j - k] == ch) count++;
-                    else break;
-                }
-                if (count == winLength) return true;
-            }
-        }
+        return state.checkWin(ch);
+    }
 
-        // No winning sequence found
-        return false;
+    /**
+     * Checks if the move just played at the given cell completed a winning sequence.
+     * Much cheaper than {@link #checkWin(char)} since only the four lines through the cell are examined.
+     *
+     * @param move The move just played.
+     * @param ch   Player character ('X' or 'O') that made the move.
+     * @return True if the move wins the game, false otherwise.
+     */
+    boolean isWinningMove(Move move, char ch) {
+        return state.isWinningMove(move, ch);
     }
 
     /**
@@ -359,11 +291,7 @@ public class TicTacToeAI extends JFrame implements ActionListener {
      * @return True if the board is full, false otherwise.
      */
     boolean isFull() {
-        for (int i = 0; i < boardSize; i++)
-            for (int j = 0; j < boardSize; j++)
-                if (board[i][j] == ' ')
-                    return false;
-        return true;
+        return state.isFull();
     }
 
     /**
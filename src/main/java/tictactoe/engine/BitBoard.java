@@ -0,0 +1,454 @@
+package tictactoe.engine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Bitboard representation of the game board used by the AI search.
+ * Each side owns one bit mask stored as a {@code long[]}, so boards of any size
+ * (3x3, 5x5, 9x9 and larger) share the same code path.
+ * Cells are laid out row by row with one spare padding column at the end of each row,
+ * which keeps shifted masks from wrapping a line over into the next row.
+ */
+class BitBoard {
+    // Side indexes used for the stone masks
+    static final int X = 0, O = 1;
+
+    // Board dimension and number of consecutive marks required to win
+    final int size, winLength;
+    // Bits per row (board size plus one padding column) and number of 64-bit words per mask
+    final int stride, words;
+    // Stone masks indexed by side
+    final long[][] stones;
+    // Mask of all real (non-padding) cells
+    final long[] playable;
+    // Number of stones currently on the board
+    int count;
+    // Zobrist key of the current stone placement, updated incrementally by set/clear
+    long hash;
+    // Random Zobrist keys indexed by [side][bit index]
+    final long[][] zobrist;
+    // Key mixed into the hash when the second side is to move
+    final long sideKey;
+
+    // Number of board symmetries (rotations and reflections of the square)
+    static final int SYMMETRIES = 8;
+    // Index of the inverse of each symmetry; only the quarter turns are not self-inverse
+    static final int[] INVERSE = {0, 3, 2, 1, 4, 5, 6, 7};
+    // Bit index each cell maps to under each symmetry, indexed by [symmetry][bit index]
+    final int[][] symmetry;
+    // Zobrist key of the position transformed by each symmetry; symHash[0] equals hash
+    final long[] symHash;
+
+    // Distance around stones within which candidate moves are generated; 0 means every empty cell
+    int candidateRadius;
+    // Cells within candidateRadius of each cell, indexed by bit index
+    private int[][] neighbours;
+    // Number of stones within candidateRadius of each cell
+    private int[] nearCount;
+    // Mask of cells with at least one stone within candidateRadius
+    private long[] near;
+
+    // Shift distances for horizontal, vertical, diagonal and anti-diagonal lines
+    private final int[] directions;
+    // Scratch mask reused by checkWin to avoid allocation
+    private final long[] run;
+    // Scratch list reused by threatensWin
+    private final int[] threats;
+
+    /**
+     * Creates an empty board of the given size.
+     *
+     * @param size      Board dimension (number of rows and columns).
+     * @param winLength Number of consecutive marks required to win.
+     */
+    BitBoard(int size, int winLength) {
+        this.size = size;
+        this.winLength = winLength;
+        this.stride = size + 1;
+        this.words = (size * stride + 63) >>> 6;
+        this.stones = new long[2][words];
+        this.playable = new long[words];
+        this.directions = new int[]{1, stride, stride + 1, stride - 1};
+        this.run = new long[words];
+        this.threats = new int[8 * winLength];
+        // Fixed seed so boards of equal size produce identical keys
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+        this.zobrist = new long[2][size * stride];
+        for (int i = 0; i < size * stride; i++) {
+            zobrist[X][i] = random.nextLong();
+            zobrist[O][i] = random.nextLong();
+        }
+        this.sideKey = random.nextLong();
+        this.symHash = new long[SYMMETRIES];
+        this.symmetry = new int[SYMMETRIES][size * stride];
+        int last = size - 1;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                setBit(playable, index(i, j));
+                int[] t = {
+                        index(i, j), index(j, last - i), index(last - i, last - j), index(last - j, i),
+                        index(i, last - j), index(last - i, j), index(j, i), index(last - j, last - i)};
+                for (int k = 0; k < SYMMETRIES; k++) symmetry[k][index(i, j)] = t[k];
+            }
+        }
+        setCandidateRadius(2);
+    }
+
+    /**
+     * Copy constructor; immutable tables are shared, stone masks are cloned.
+     */
+    private BitBoard(BitBoard other) {
+        this.size = other.size;
+        this.winLength = other.winLength;
+        this.stride = other.stride;
+        this.words = other.words;
+        this.stones = new long[][]{other.stones[X].clone(), other.stones[O].clone()};
+        this.playable = other.playable;
+        this.count = other.count;
+        this.hash = other.hash;
+        this.zobrist = other.zobrist;
+        this.sideKey = other.sideKey;
+        this.symmetry = other.symmetry;
+        this.symHash = other.symHash.clone();
+        this.directions = other.directions;
+        this.run = new long[words];
+        this.threats = new int[8 * winLength];
+        this.candidateRadius = other.candidateRadius;
+        this.neighbours = other.neighbours;
+        this.nearCount = other.nearCount.clone();
+        this.near = other.near.clone();
+    }
+
+    /**
+     * @return Independent copy of this board, e.g. for a search running on another thread.
+     */
+    BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    /**
+     * Maps a player character to its side index.
+     *
+     * @param ch Player character ('X' or 'O').
+     * @return {@link #X} or {@link #O}.
+     */
+    static int side(char ch) {
+        return ch == 'X' ? X : O;
+    }
+
+    /**
+     * Builds a board from rows of 'X', 'O' and '.' characters, e.g. for benchmark and test positions.
+     *
+     * @param winLength Stones in a row needed to win.
+     * @param rows      One string per row, as many as the board is wide.
+     */
+    static BitBoard parse(int winLength, String... rows) {
+        BitBoard board = new BitBoard(rows.length, winLength);
+        for (int i = 0; i < rows.length; i++)
+            for (int j = 0; j < rows.length; j++)
+                if (rows[i].charAt(j) != '.') board.set(board.index(i, j), side(rows[i].charAt(j)));
+        return board;
+    }
+
+    /**
+     * @param row Row index.
+     * @param col Column index.
+     * @return Bit index of the cell.
+     */
+    int index(int row, int col) {
+        return row * stride + col;
+    }
+
+    int row(int index) {
+        return index / stride;
+    }
+
+    int col(int index) {
+        return index % stride;
+    }
+
+    /**
+     * Places a stone of the given side on an empty cell.
+     *
+     * @param index Bit index of the cell.
+     * @param side  Side placing the stone.
+     */
+    void set(int index, int side) {
+        setBit(stones[side], index);
+        hash ^= zobrist[side][index];
+        for (int t = 0; t < SYMMETRIES; t++) symHash[t] ^= zobrist[side][symmetry[t][index]];
+        count++;
+        for (int n : neighbours[index])
+            if (nearCount[n]++ == 0) setBit(near, n);
+    }
+
+    /**
+     * Removes a stone previously placed with {@link #set(int, int)}.
+     *
+     * @param index Bit index of the cell.
+     * @param side  Side owning the stone.
+     */
+    void clear(int index, int side) {
+        stones[side][index >>> 6] &= ~(1L << index);
+        hash ^= zobrist[side][index];
+        for (int t = 0; t < SYMMETRIES; t++) symHash[t] ^= zobrist[side][symmetry[t][index]];
+        count--;
+        for (int n : neighbours[index])
+            if (--nearCount[n] == 0) near[n >>> 6] &= ~(1L << n);
+    }
+
+    boolean isSet(int index, int side) {
+        return (stones[side][index >>> 6] & (1L << index)) != 0;
+    }
+
+    boolean isEmpty(int index) {
+        return ((stones[X][index >>> 6] | stones[O][index >>> 6]) & (1L << index)) == 0;
+    }
+
+    /**
+     * @param word Word index in the range [0, words).
+     * @return Bits of all empty cells stored in the given word.
+     */
+    long emptyWord(int word) {
+        return playable[word] & ~(stones[X][word] | stones[O][word]);
+    }
+
+    /**
+     * Writes the bit indexes of all empty cells into the given buffer by iterating
+     * the empty-cell bits, so move generation does not allocate.
+     *
+     * @param moves Buffer with room for at least {@code size * size} entries.
+     * @return Number of moves written.
+     */
+    int getAvailableMoves(int[] moves) {
+        int n = 0;
+        for (int w = 0; w < words; w++)
+            for (long empty = emptyWord(w); empty != 0; empty &= empty - 1)
+                moves[n++] = (w << 6) + Long.numberOfTrailingZeros(empty);
+        return n;
+    }
+
+    /**
+     * Writes the bit indexes of candidate moves: empty cells within {@link #candidateRadius}
+     * of an occupied cell, or just the centre on an empty board. Far-away cells are almost
+     * never relevant, so this keeps the branching factor low on large boards.
+     * The candidate mask is maintained by set/clear, so generation only iterates its bits.
+     *
+     * @param moves Buffer with room for at least {@code size * size} entries.
+     * @return Number of moves written.
+     */
+    int getCandidateMoves(int[] moves) {
+        if (candidateRadius == 0) return getAvailableMoves(moves);
+        if (count == 0) {
+            moves[0] = index(size / 2, size / 2);
+            return 1;
+        }
+        int n = 0;
+        for (int w = 0; w < words; w++)
+            for (long m = near[w] & emptyWord(w); m != 0; m &= m - 1)
+                moves[n++] = (w << 6) + Long.numberOfTrailingZeros(m);
+        // Every cell near a stone is taken: fall back to the remaining empty cells
+        return n > 0 ? n : getAvailableMoves(moves);
+    }
+
+    /**
+     * Sets the candidate radius and rebuilds the neighbourhood tables for the current stones.
+     * A radius of at least 1 always keeps immediate wins and blocks, which lie next to a stone.
+     *
+     * @param radius Chebyshev distance around stones to generate moves in; 0 disables pruning.
+     */
+    void setCandidateRadius(int radius) {
+        candidateRadius = radius;
+        neighbours = new int[size * stride][];
+        nearCount = new int[size * stride];
+        near = new long[words];
+        int[] buffer = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int n = 0;
+                for (int i = Math.max(0, r - radius); i <= Math.min(size - 1, r + radius); i++)
+                    for (int j = Math.max(0, c - radius); j <= Math.min(size - 1, c + radius); j++)
+                        if (i != r || j != c) buffer[n++] = index(i, j);
+                neighbours[index(r, c)] = Arrays.copyOf(buffer, n);
+            }
+        }
+        for (int i = 0; i < size * stride; i++) {
+            if (neighbours[i] == null) neighbours[i] = new int[0];
+            if (isSet(i, X) || isSet(i, O))
+                for (int n : neighbours[i])
+                    if (nearCount[n]++ == 0) setBit(near, n);
+        }
+    }
+
+    /**
+     * Picks the symmetry mapping the position to its canonical form, the transformed
+     * position with the smallest Zobrist key. All eight symmetric variants of a position
+     * share the canonical key {@code symHash[t]}, so they share transposition-table entries.
+     *
+     * @return Symmetry index t; moves map into the canonical frame with {@code symmetry[t]}.
+     */
+    int canonicalTransform() {
+        int best = 0;
+        for (int t = 1; t < SYMMETRIES; t++)
+            if (symHash[t] < symHash[best]) best = t;
+        return best;
+    }
+
+    /**
+     * Finds the symmetries the current position is invariant under. Candidates are
+     * found by comparing keys and then verified cell by cell, so the exact check only
+     * runs while the position is actually symmetric.
+     *
+     * @return Bit mask with bit t set if symmetry t maps the position onto itself; bit 0 is always set.
+     */
+    int symmetries() {
+        int mask = 1;
+        for (int t = 1; t < SYMMETRIES; t++) {
+            if (symHash[t] != hash) continue;
+            boolean same = true;
+            for (int i = 0; i < size * stride && same; i++) {
+                if (isSet(i, X)) same = isSet(symmetry[t][i], X);
+                else if (isSet(i, O)) same = isSet(symmetry[t][i], O);
+            }
+            if (same) mask |= 1 << t;
+        }
+        return mask;
+    }
+
+    /**
+     * Keeps one move out of every group of moves that are equivalent under the
+     * symmetries of the current position (the one with the lowest bit index).
+     *
+     * @param moves Bit indexes of the moves; compacted in place.
+     * @param count Number of valid entries in {@code moves}.
+     * @return Number of moves left.
+     */
+    int removeSymmetricMoves(int[] moves, int count) {
+        int mask = symmetries();
+        if (mask == 1) return count;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            boolean representative = true;
+            for (int t = 1; t < SYMMETRIES && representative; t++)
+                if ((mask & (1 << t)) != 0 && symmetry[t][move] < move) representative = false;
+            if (representative) moves[n++] = move;
+        }
+        return n;
+    }
+
+    /**
+     * Checks if the given side has a winning sequence in any direction.
+     * Each direction is tested by repeatedly and-ing the mask with itself shifted
+     * by the line step, so only bits starting a long enough run survive.
+     *
+     * @param side Side to check.
+     * @return True if the side has won, false otherwise.
+     */
+    boolean checkWin(int side) {
+        long[] s = stones[side];
+        for (int d : directions) {
+            System.arraycopy(s, 0, run, 0, words);
+            boolean any = true;
+            for (int k = 1; k < winLength && any; k++) any = andShifted(run, d);
+            if (any && nonZero(run)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks only the four lines through a freshly played cell for a winning sequence.
+     * Walks at most {@code winLength - 1} cells in each direction; padding bits are never
+     * set, so a walk stops at the board edge without explicit column checks.
+     * The cell itself is not tested, so this also tells whether playing an empty cell would win.
+     *
+     * @param index Bit index of the cell just played.
+     * @param side  Side that played it.
+     * @return True if the move completed a winning sequence, false otherwise.
+     */
+    boolean winsAt(int index, int side) {
+        int cells = size * stride;
+        for (int d : directions) {
+            int count = 1;
+            for (int i = index + d; count < winLength && i < cells && isSet(i, side); i += d) count++;
+            for (int i = index - d; count < winLength && i >= 0 && isSet(i, side); i -= d) count++;
+            if (count >= winLength) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collects the empty cells on the four lines through a stone where its side would win
+     * by playing next. Right after a move these are exactly the threats the move created,
+     * provided the side had none before.
+     *
+     * @param index Bit index of the stone.
+     * @param side  Side owning the stone.
+     * @param cells Receives the distinct winning cells; needs room for {@code 8 * winLength} entries.
+     * @return Number of winning cells found.
+     */
+    int threatsThrough(int index, int side, int[] cells) {
+        int found = 0;
+        int limit = size * stride;
+        for (int d : directions) {
+            for (int step = -d; step <= d; step += 2 * d) {
+                int cell = index;
+                for (int k = 1; k < winLength; k++) {
+                    cell += step;
+                    // Stop at the board edge or the padding column
+                    if (cell < 0 || cell >= limit || col(cell) == size) break;
+                    if (!isEmpty(cell) || !winsAt(cell, side)) continue;
+                    boolean seen = false;
+                    for (int j = 0; j < found; j++) seen |= cells[j] == cell;
+                    if (!seen) cells[found++] = cell;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return True if the side could win next move on a line through the stone at {@code index}.
+     */
+    boolean threatensWin(int index, int side) {
+        return threatsThrough(index, side, threats) > 0;
+    }
+
+    /**
+     * @return True if every cell is occupied.
+     */
+    boolean isFull() {
+        return count == size * size;
+    }
+
+    /**
+     * Replaces {@code a} with {@code a & (a >>> d)} across all words in place.
+     * The shift is split into whole words and remaining bits, since Java takes shift
+     * counts mod 64 and line steps reach 64 bits on boards of size 62 and up.
+     *
+     * @return True if any bit is still set afterwards.
+     */
+    private boolean andShifted(long[] a, int d) {
+        int shiftWords = d >>> 6, bits = d & 63;
+        long any = 0;
+        for (int i = 0; i < words; i++) {
+            int j = i + shiftWords;
+            long lo = j < words ? a[j] >>> bits : 0;
+            long hi = bits != 0 && j + 1 < words ? a[j + 1] << (64 - bits) : 0;
+            a[i] &= lo | hi;
+            any |= a[i];
+        }
+        return any != 0;
+    }
+
+    private boolean nonZero(long[] a) {
+        for (long w : a)
+            if (w != 0) return true;
+        return false;
+    }
+
+    private static void setBit(long[] mask, int index) {
+        mask[index >>> 6] |= 1L << index;
+    }
+}
@@ -0,0 +1,401 @@
+package tictactoe.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Headless AI opponent: chooses moves for one side of a game at a difficulty level.
+ * Uses no AWT or Swing classes, so it runs on servers and in benchmarks without a display.
+ * <p>
+ * An engine keeps a transposition table across the moves of a game, so use one engine
+ * per game and call {@link #newGame()} when a new game starts. An instance is thread-safe:
+ * {@link #chooseMove} and {@link #newGame()} run one at a time, and {@link #stop()} may be
+ * called from any thread to make a running {@link #chooseMove} answer early.
+ */
+public class Engine {
+    // Difficulty levels
+    public static final String EASY = "Easy", MEDIUM = "Medium", HARD = "Hard", IMPOSSIBLE = "Impossible",
+            MONTE_CARLO = "Monte Carlo";
+    public static final String[] DIFFICULTIES = {EASY, MEDIUM, HARD, IMPOSSIBLE, MONTE_CARLO};
+    // How the Impossible search is split over cores
+    public static final String SEARCH_ROOT_SPLIT = "root split", SEARCH_LAZY_SMP = "lazy SMP";
+    // How the Monte Carlo search is split over cores
+    public static final String MCTS_ROOT_PARALLEL = ParallelMcts.ROOT_PARALLEL, MCTS_TREE_PARALLEL = ParallelMcts.TREE_PARALLEL;
+
+    // Rules of the games this engine plays
+    private final Rules rules;
+    // Transposition table shared by all searches of the current game, allocated by the first search
+    private TranspositionTable tt;
+    // Looks for forced wins by continuous threats before the general search
+    private final ThreatSearch threats = new ThreatSearch();
+    // Random source for Easy moves
+    private final Random random = new Random();
+    // Reusable buffer for the bit indexes of empty cells, so Easy and Medium moves do not allocate
+    private final int[] moveBuffer;
+    // Monte Carlo search, created on first use and reused for every move
+    private ParallelMcts mcts;
+    // Proven results of the first moves, consulted by Impossible on the empty board; null if none
+    private OpeningBook openingBook;
+    // Wall-clock budget for one move in milliseconds
+    private int timeBudgetMs = 1000;
+    // Depth cap of Hard and Impossible, or 0 for the difficulty's own
+    private int maxDepth;
+    // Creates the leaf evaluation of each search
+    private Supplier<Evaluator> evaluator = LineEvaluator::new;
+    // Parallel mode and number of threads of the Impossible search; one thread searches sequentially
+    private String searchMode = SEARCH_LAZY_SMP;
+    private int searchThreads = Runtime.getRuntime().availableProcessors();
+    // Threads of the parallel search besides the caller's, created on first use; not shared
+    // with other engines so their work cannot delay this engine's helpers
+    private ForkJoinPool searchPool;
+    // Monte Carlo mode and number of threads: the calling thread plus one per common-pool worker
+    private String mctsMode = MCTS_TREE_PARALLEL;
+    private int mctsThreads = ForkJoinPool.commonPool().getParallelism() + 1;
+    // Stops the search currently running in chooseMove, or null while idle
+    private volatile Runnable stopSearch;
+    // Set by stop() during chooseMove, so a search started after the request gets no time
+    private volatile boolean stopRequested;
+    // Searches and Monte Carlo playout count behind the move being chosen, for its statistics
+    private final List<Search> searches = new ArrayList<>();
+    private long playouts;
+    // Statistics of the last move chosen
+    private volatile SearchStats lastStats = SearchStats.NONE;
+
+    /**
+     * @param rules Rules of the games this engine plays.
+     */
+    public Engine(Rules rules) {
+        this.rules = rules;
+        this.moveBuffer = new int[rules.size * rules.size];
+    }
+
+    /**
+     * @return Rules of the games this engine plays.
+     */
+    public Rules rules() {
+        return rules;
+    }
+
+    /**
+     * Forgets everything learned in the previous game.
+     */
+    public synchronized void newGame() {
+        if (tt != null) tt.clear();
+    }
+
+    /**
+     * @param timeBudgetMs Wall-clock budget for one move in milliseconds.
+     */
+    public synchronized void setTimeBudgetMs(int timeBudgetMs) {
+        this.timeBudgetMs = timeBudgetMs;
+    }
+
+    /**
+     * @param maxDepth Depth cap for Hard and Impossible, or 0 for the difficulty's own;
+     *                 Impossible on 3x3 always plays perfectly.
+     */
+    public synchronized void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param evaluator Creates the leaf evaluation of each Hard and Impossible search.
+     */
+    synchronized void setEvaluator(Supplier<Evaluator> evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Loads solved opening results, as written by {@link ProofNumberSearch#main}, for
+     * Impossible to use when it moves first: it then plays the opening move with the best
+     * proven result, the most central one among equals, without searching.
+     *
+     * @param file Opening book for this engine's rules.
+     * @throws IllegalArgumentException If the book is malformed or solved for other rules.
+     */
+    public synchronized void setOpeningBook(Path file) throws IOException {
+        OpeningBook book = OpeningBook.load(file);
+        if (book.size != rules.size || book.winLength != rules.winLength)
+            throw new IllegalArgumentException("Opening book is for " + new Rules(book.size, book.winLength)
+                    + ", not " + rules);
+        openingBook = book;
+    }
+
+    /**
+     * Configures how the Impossible difficulty uses several cores. Hard always searches
+     * on the calling thread, so its strength does not depend on the machine.
+     *
+     * @param mode    {@link #SEARCH_LAZY_SMP} (the default): helper threads from the engine's own pool
+     *                search the same tree and share the transposition table; or
+     *                {@link #SEARCH_ROOT_SPLIT}: root moves are split over {@code threads}
+     *                workers of the engine's own pool.
+     * @param threads Number of searching threads; 1 searches on the calling thread only.
+     */
+    public synchronized void setParallelSearch(String mode, int threads) {
+        if (!mode.equals(SEARCH_ROOT_SPLIT) && !mode.equals(SEARCH_LAZY_SMP))
+            throw new IllegalArgumentException("Unknown search mode: " + mode);
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        searchMode = mode;
+        searchThreads = threads;
+    }
+
+    /**
+     * Configures the Monte Carlo difficulty.
+     *
+     * @param mode    {@link #MCTS_ROOT_PARALLEL} or {@link #MCTS_TREE_PARALLEL}.
+     * @param threads Number of searching threads including the caller; the others run in the common pool.
+     */
+    public synchronized void setMonteCarlo(String mode, int threads) {
+        if (!mode.equals(MCTS_ROOT_PARALLEL) && !mode.equals(MCTS_TREE_PARALLEL))
+            throw new IllegalArgumentException("Unknown MCTS mode: " + mode);
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        mctsMode = mode;
+        mctsThreads = threads;
+    }
+
+    /**
+     * Safe to call from any thread.
+     *
+     * @return Work done to choose the last move, or empty statistics before the first one.
+     */
+    public SearchStats lastStats() {
+        return lastStats;
+    }
+
+    /**
+     * Asks a running {@link #chooseMove} to answer with the best move found so far.
+     * Safe to call from any thread; does nothing while the engine is idle.
+     */
+    public void stop() {
+        stopRequested = true;
+        Runnable stop = stopSearch;
+        if (stop != null) stop.run();
+    }
+
+    /**
+     * Chooses a move based on the difficulty.
+     * Easy plays randomly and Medium wins or blocks immediate wins when it can. Hard keeps
+     * a depth cap adapted to the board size, Impossible searches as deep as the time
+     * budget allows (3x3 is answered from a precomputed perfect-play table, and the first
+     * move from the opening book if one is set); both first look for a forced win by
+     * continuous threats, within the same time budget. Monte Carlo runs playouts for the
+     * whole time budget. The search blocks the calling thread and works on a copy of the position;
+     * the work it did is then available from {@link #lastStats()} and, while Flight Recorder
+     * is running, recorded as a {@link MoveSearchEvent}.
+     *
+     * @param state      Position to move in; must not be modified until the call returns.
+     * @param player     Player character ('X' or 'O') the engine moves for.
+     * @param difficulty One of {@link #DIFFICULTIES}, not null; unknown values play as Easy.
+     * @return The chosen move, or null if the board is full.
+     */
+    public synchronized Move chooseMove(GameState state, char player, String difficulty) {
+        Objects.requireNonNull(difficulty, "difficulty");
+        if (state.rules().size != rules.size || state.rules().winLength != rules.winLength)
+            throw new IllegalArgumentException("Engine plays " + rules + ", not " + state.rules());
+        BitBoard position = state.board.copy();
+        int side = BitBoard.side(player);
+        if (position.isFull()) return null;
+
+        MoveSearchEvent event = new MoveSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        stopRequested = false;
+        searches.clear();
+        playouts = 0;
+        threats.nodes = 0;
+        // The table counters run for the whole game; the move's share is their difference
+        long probes = tt == null ? 0 : tt.probes, hits = tt == null ? 0 : tt.hits;
+        Move move = choose(position, side, difficulty);
+        long elapsed = System.nanoTime() - start;
+        long nodes = threats.nodes + playouts, leafEvaluations = 0, cutoffs = 0, firstMoveCutoffs = 0;
+        int depth = 0;
+        for (Search search : searches) {
+            nodes += search.totalNodes();
+            leafEvaluations += search.leafEvaluations;
+            cutoffs += search.cutoffs;
+            firstMoveCutoffs += search.firstMoveCutoffs;
+            depth = Math.max(depth, search.maxDepthReached);
+        }
+        lastStats = new SearchStats(nodes, leafEvaluations, cutoffs, firstMoveCutoffs,
+                tt == null ? 0 : tt.probes - probes, tt == null ? 0 : tt.hits - hits, depth, elapsed);
+        if (event.shouldCommit()) {
+            event.boardSize = rules.size;
+            event.difficulty = difficulty;
+            event.depth = lastStats.maxDepth;
+            event.nodes = lastStats.nodes;
+            event.commit();
+        }
+        return move;
+    }
+
+    private Move choose(BitBoard position, int side, String difficulty) {
+        int depth;
+        // Depth limit adjusted per board size for responsiveness
+        switch (rules.size) {
+            case 3: depth = 6; break;
+            case 5: depth = 4; break;
+            case 9: depth = 2; break;
+            default: depth = 3;
+        }
+
+        switch (difficulty) {
+            case MEDIUM:
+                return toMove(position, mediumMove(position, side));
+            case HARD:
+                break;
+            case IMPOSSIBLE:
+                if (rules.size == 3 && rules.winLength == 3) {
+                    // 3x3 with three in a row is solved: answer from the perfect-play table without searching
+                    return toMove(position, PerfectPlay3x3.bestMove(position, side));
+                }
+                if (openingBook != null && position.count == 0) return toMove(position, bookMove(position));
+                depth = Search.MAX_PLY;
+                break;
+            case MONTE_CARLO:
+                return monteCarloMove(position, side);
+            case EASY:
+            default:
+                return toMove(position, randomMove(position));
+        }
+
+        if (maxDepth > 0) depth = maxDepth;
+
+        // A forced win found by the threat search is played without the general search
+        long deadline = System.nanoTime() + timeBudgetMs * 1_000_000L;
+        int win;
+        stopSearch = threats::stop;
+        try {
+            win = threats.findWin(position, side, ThreatSearch.MAX_MOVES, deadline);
+        } finally {
+            stopSearch = null;
+        }
+        if (win >= 0) return toMove(position, win);
+        // The threat search's time counts against the move's budget
+        long budgetMs = stopRequested ? 0 : Math.max(0, (deadline - System.nanoTime()) / 1_000_000L);
+        if (tt == null) tt = new TranspositionTable(20);
+        if (difficulty.equals(IMPOSSIBLE) && searchThreads > 1)
+            return parallelMove(position, side, depth, budgetMs, difficulty);
+        Search search = new Search(position, side, tt, evaluator.get());
+        search.difficulty = difficulty;
+        searches.add(search);
+        stopSearch = search::stop;
+        try {
+            return toMove(search.iterativeDeepening(depth, budgetMs));
+        } finally {
+            stopSearch = null;
+        }
+    }
+
+    private Move parallelMove(BitBoard position, int side, int depth, long budgetMs, String difficulty) {
+        if (searchMode.equals(SEARCH_LAZY_SMP)) {
+            LazySmpSearch search = new LazySmpSearch(position, side, tt, searchThreads, searchPool(searchThreads - 1), evaluator);
+            search.main.difficulty = difficulty;
+            for (Search helper : search.helpers) helper.difficulty = difficulty;
+            stopSearch = search::stop;
+            try {
+                return toMove(search.iterativeDeepening(depth, budgetMs));
+            } finally {
+                stopSearch = null;
+                searches.add(search.main);
+                searches.addAll(search.helpers);
+            }
+        }
+        ParallelRootSearch search = new ParallelRootSearch(position, side, tt, searchPool(searchThreads), evaluator);
+        search.main.difficulty = difficulty;
+        stopSearch = search::stop;
+        try {
+            return toMove(search.iterativeDeepening(depth, budgetMs));
+        } finally {
+            stopSearch = null;
+            searches.add(search.main);
+            searches.addAll(search.workers.values());
+        }
+    }
+
+    /**
+     * @return The engine's search pool, replaced first if it does not have the given parallelism.
+     */
+    private ForkJoinPool searchPool(int parallelism) {
+        if (searchPool == null || searchPool.getParallelism() != parallelism) {
+            if (searchPool != null) searchPool.shutdown();
+            searchPool = new ForkJoinPool(parallelism);
+        }
+        return searchPool;
+    }
+
+    private Move monteCarloMove(BitBoard position, int side) {
+        if (mcts == null || !mcts.mode.equals(mctsMode) || mcts.threads != mctsThreads)
+            mcts = new ParallelMcts(mctsMode, mctsThreads, 1 << 20, ForkJoinPool.commonPool());
+        ParallelMcts search = mcts;
+        stopSearch = search::stop;
+        try {
+            return toMove(search.search(position, side, timeBudgetMs, Long.MAX_VALUE));
+        } finally {
+            playouts = search.playouts;
+            stopSearch = null;
+        }
+    }
+
+    /**
+     * @return Bit index of the first move with the best proven result, the one nearest
+     * the centre among equals.
+     */
+    private int bookMove(BitBoard position) {
+        int best = -1, bestResult = 0, bestDistance = 0;
+        for (int row = 0; row < rules.size; row++) {
+            for (int col = 0; col < rules.size; col++) {
+                int result = openingBook.result(row, col);
+                // Squared distance to the centre in half cells, so it stays integral on even sizes
+                int dr = 2 * row - (rules.size - 1), dc = 2 * col - (rules.size - 1);
+                int distance = dr * dr + dc * dc;
+                if (best < 0 || result > bestResult || result == bestResult && distance < bestDistance) {
+                    best = position.index(row, col);
+                    bestResult = result;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Selects a random empty cell (used in Easy difficulty).
+     *
+     * @return Bit index of the move, or -1 if the board is full.
+     */
+    private int randomMove(BitBoard position) {
+        int count = position.getAvailableMoves(moveBuffer);
+        return count == 0 ? -1 : moveBuffer[random.nextInt(count)];
+    }
+
+    /**
+     * Medium difficulty attempts to win if possible, blocks the opponent's immediate
+     * winning moves, or falls back to a random move.
+     *
+     * @return Bit index of the move, or -1 if the board is full.
+     */
+    int mediumMove(BitBoard position, int side) {
+        int[] moves = moveBuffer;
+        int count = position.getAvailableMoves(moves);
+        for (int i = 0; i < count; i++)
+            if (position.winsAt(moves[i], side)) return moves[i];
+        for (int i = 0; i < count; i++)
+            if (position.winsAt(moves[i], 1 - side)) return moves[i];
+        // Random fallback from the moves already generated
+        return count == 0 ? -1 : moves[random.nextInt(count)];
+    }
+
+    private static Move toMove(BitBoard position, int index) {
+        return index < 0 ? null : new Move(position.row(index), position.col(index));
+    }
+
+    private static Move toMove(int[] move) {
+        return move == null ? null : new Move(move[0], move[1]);
+    }
+}
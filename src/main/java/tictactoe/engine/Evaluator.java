@@ -0,0 +1,38 @@
+package tictactoe.engine;
+
+/**
+ * Static evaluation used by the search at depth-limited leaves.
+ * Implementations are kept in sync with the board incrementally: the search calls
+ * {@link #make(int, int)} after placing a stone and {@link #unmake(int, int)} after
+ * removing it, so {@link #evaluate(int)} never has to scan the whole board.
+ */
+interface Evaluator {
+    /**
+     * Rebuilds the evaluator state from scratch for the given position.
+     *
+     * @param board Position the following make/unmake calls start from.
+     */
+    void reset(BitBoard board);
+
+    /**
+     * Called after a stone has been placed.
+     *
+     * @param index Bit index of the cell.
+     * @param side  Side that placed the stone.
+     */
+    void make(int index, int side);
+
+    /**
+     * Called after a stone has been removed, undoing {@link #make(int, int)}.
+     *
+     * @param index Bit index of the cell.
+     * @param side  Side that owned the stone.
+     */
+    void unmake(int index, int side);
+
+    /**
+     * @param side Side to score the position for.
+     * @return Heuristic score, positive if the position favours {@code side}.
+     */
+    int evaluate(int side);
+}
@@ -0,0 +1,112 @@
+package tictactoe.engine;
+
+/**
+ * Position of a game: the marks on the board under a set of {@link Rules}.
+ * Players are identified by their mark, 'X' or 'O'. A game state is not thread-safe;
+ * the {@link Engine} only reads it while choosing a move and searches on its own copy.
+ */
+public final class GameState {
+    // Rules the game is played under
+    private final Rules rules;
+    // Bitboard holding the marks, shared with the engine's searches as the position to copy
+    final BitBoard board;
+
+    /**
+     * Creates an empty board.
+     *
+     * @param rules Rules of the game.
+     */
+    public GameState(Rules rules) {
+        this.rules = rules;
+        this.board = new BitBoard(rules.size, rules.winLength);
+    }
+
+    private GameState(GameState other) {
+        this.rules = other.rules;
+        this.board = other.board.copy();
+    }
+
+    /**
+     * @return An independent copy of this position.
+     */
+    public GameState copy() {
+        return new GameState(this);
+    }
+
+    /**
+     * @return Rules the game is played under.
+     */
+    public Rules rules() {
+        return rules;
+    }
+
+    /**
+     * Places a player's mark.
+     *
+     * @param move   Cell to mark; must be empty.
+     * @param player Player character ('X' or 'O').
+     */
+    public void play(Move move, char player) {
+        int index = index(move);
+        if (!board.isEmpty(index)) throw new IllegalArgumentException("Cell " + move + " is not empty");
+        board.set(index, BitBoard.side(player));
+    }
+
+    /**
+     * @return The mark at a cell: 'X', 'O', or ' ' if it is empty.
+     */
+    public char get(int row, int col) {
+        int index = board.index(row, col);
+        return board.isSet(index, BitBoard.X) ? 'X' : board.isSet(index, BitBoard.O) ? 'O' : ' ';
+    }
+
+    /**
+     * @return True if the cell has no mark.
+     */
+    public boolean isEmpty(int row, int col) {
+        return board.isEmpty(board.index(row, col));
+    }
+
+    /**
+     * Checks if the specified player has achieved a winning sequence
+     * of the required length in any direction (horizontal, vertical, diagonal).
+     *
+     * @param player Player character ('X' or 'O').
+     * @return True if the player has won.
+     */
+    public boolean checkWin(char player) {
+        return board.checkWin(BitBoard.side(player));
+    }
+
+    /**
+     * Checks if the move just played at the given cell completed a winning sequence.
+     * Much cheaper than {@link #checkWin(char)} since only the four lines through the cell are examined.
+     *
+     * @param move   The move just played.
+     * @param player Player character that made it.
+     * @return True if the move wins the game.
+     */
+    public boolean isWinningMove(Move move, char player) {
+        return board.winsAt(index(move), BitBoard.side(player));
+    }
+
+    /**
+     * @return True if every cell is occupied.
+     */
+    public boolean isFull() {
+        return board.isFull();
+    }
+
+    /**
+     * @return Number of marks on the board.
+     */
+    public int moveCount() {
+        return board.count;
+    }
+
+    private int index(Move move) {
+        if (move.row < 0 || move.row >= rules.size || move.col < 0 || move.col >= rules.size)
+            throw new IllegalArgumentException("Cell " + move + " is off the board");
+        return board.index(move.row, move.col);
+    }
+}
@@ -0,0 +1,122 @@
+package tictactoe.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Lazy SMP: several threads run the same iterative-deepening alpha-beta search from the
+ * same root, each on its own board copy, and share one lock-free transposition table.
+ * Helper threads perturb their move order so they explore different parts of the tree
+ * first; the entries they store let the main thread cut off or reorder subtrees it has
+ * not reached yet. The main thread's result is played and the helpers are stopped as
+ * soon as it finishes, so no split-point synchronisation is needed.
+ */
+class LazySmpSearch {
+    // Executor running the helper threads
+    final ExecutorService executor;
+    // Searches on the calling thread and decides the move
+    final Search main;
+    // Helper searches, one per extra thread
+    final List<Search> helpers = new ArrayList<>();
+
+    /**
+     * @param state   Position to search; the search takes ownership of it.
+     * @param aiSide  Side the search plays for.
+     * @param tt      Transposition table shared by all threads.
+     * @param threads Total number of searching threads including the caller.
+     * @param executor Executor for the {@code threads - 1} helpers; needs that many free threads.
+     */
+    LazySmpSearch(BitBoard state, int aiSide, TranspositionTable tt, int threads, ExecutorService executor) {
+        this(state, aiSide, tt, threads, executor, LineEvaluator::new);
+    }
+
+    /**
+     * @param state     Position to search; the search takes ownership of it.
+     * @param aiSide    Side the search plays for.
+     * @param tt        Transposition table shared by all threads.
+     * @param threads   Total number of searching threads including the caller.
+     * @param executor  Executor for the {@code threads - 1} helpers; needs that many free threads.
+     * @param evaluator Creates the leaf evaluation of each thread's search.
+     */
+    LazySmpSearch(BitBoard state, int aiSide, TranspositionTable tt, int threads, ExecutorService executor,
+                  Supplier<Evaluator> evaluator) {
+        this.executor = executor;
+        this.main = new Search(state, aiSide, tt, evaluator.get());
+        for (int i = 1; i < threads; i++) {
+            Search helper = new Search(state.copy(), aiSide, tt, evaluator.get());
+            helper.helperId = i;
+            helpers.add(helper);
+        }
+    }
+
+    /**
+     * Stops the main search and every helper; see {@link Search#stop()}.
+     */
+    void stop() {
+        main.stop();
+        helpers.forEach(Search::stop);
+    }
+
+    /**
+     * Runs the main and helper searches with the same budget and returns the main
+     * thread's move, with the same stopping rules as {@link Search#iterativeDeepening(int, long)}.
+     * Helpers still queued when the main search finishes are cancelled rather than waited
+     * for, so a busy executor cannot hold the move past its budget.
+     *
+     * @param maxDepth Deepest iteration to run.
+     * @param budgetMs Time budget in milliseconds.
+     * @return Coordinates [row, col] of the best move, or null if the board is full.
+     */
+    int[] iterativeDeepening(int maxDepth, long budgetMs) {
+        main.tt.newSearch();
+        long deadline = System.nanoTime() + budgetMs * 1_000_000L;
+        main.begin(deadline);
+        List<Future<?>> running = new ArrayList<>();
+        // Claimed by a helper when it starts, or by the main thread to cancel it unstarted
+        List<AtomicBoolean> claimed = new ArrayList<>();
+        for (Search helper : helpers) {
+            helper.begin(deadline);
+            AtomicBoolean claim = new AtomicBoolean();
+            claimed.add(claim);
+            running.add(executor.submit(() -> {
+                if (claim.compareAndSet(false, true)) helper.deepen(maxDepth);
+            }));
+        }
+
+        int[] move = main.deepen(maxDepth);
+
+        helpers.forEach(Search::stop);
+        try {
+            for (int i = 0; i < running.size(); i++) {
+                if (claimed.get(i).compareAndSet(false, true)) running.get(i).cancel(false);
+                else running.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return move;
+    }
+
+    /**
+     * @return Score of the main thread's last completed iteration.
+     */
+    int rootScore() {
+        return main.rootScore;
+    }
+
+    /**
+     * @return Nodes visited by all threads in the current search, counted as in {@link Search#totalNodes()}.
+     */
+    long nodes() {
+        long nodes = main.totalNodes();
+        for (Search helper : helpers) nodes += helper.totalNodes();
+        return nodes;
+    }
+}
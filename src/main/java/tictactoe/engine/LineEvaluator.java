@@ -0,0 +1,111 @@
+package tictactoe.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default evaluator scoring runs of stones in every window of {@code winLength}
+ * consecutive cells along rows, columns and both diagonals.
+ * A window still open to one side only (no opponent stone in it) is worth more the
+ * more stones it holds; a window holding stones of both sides is dead. An open run
+ * lies in more live windows than a half-open run of the same length, so open runs
+ * naturally score higher than half-open ones.
+ * Totals are kept per side and updated only for the windows through the changed cell.
+ */
+class LineEvaluator implements Evaluator {
+    // Each extra stone in a window multiplies its value by 2^growthBits
+    private final int growthBits;
+    // Value of a live window by number of own stones in it
+    private int[] weights;
+    // Window ids containing each cell, indexed by bit index
+    private int[][] cellWindows;
+    // Stones per side in each window
+    private int[][] counts;
+    // Sum of live window values per side
+    private final int[] totals = new int[2];
+
+    /**
+     * Creates the default evaluator, where each extra stone in a window is worth eight times more.
+     */
+    LineEvaluator() {
+        this(3);
+    }
+
+    /**
+     * @param growthBits Each extra stone in a window multiplies its value by {@code 2^growthBits};
+     *                   1 to 3, so totals stay far below win scores.
+     */
+    LineEvaluator(int growthBits) {
+        if (growthBits < 1 || growthBits > 3) throw new IllegalArgumentException("growthBits must be 1 to 3: " + growthBits);
+        this.growthBits = growthBits;
+    }
+
+    @Override
+    public void reset(BitBoard board) {
+        int n = board.size, w = board.winLength;
+        weights = new int[w + 1];
+        for (int k = 1; k <= w; k++) weights[k] = 1 << (growthBits * (k - 1));
+
+        List<List<Integer>> windowsByCell = new ArrayList<>();
+        for (int i = 0; i < n * board.stride; i++) windowsByCell.add(new ArrayList<>());
+        int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int windows = 0;
+        for (int[] step : steps) {
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    int endR = r + step[0] * (w - 1), endC = c + step[1] * (w - 1);
+                    if (endR >= n || endC < 0 || endC >= n) continue;
+                    for (int k = 0; k < w; k++)
+                        windowsByCell.get(board.index(r + step[0] * k, c + step[1] * k)).add(windows);
+                    windows++;
+                }
+            }
+        }
+        cellWindows = new int[windowsByCell.size()][];
+        for (int i = 0; i < cellWindows.length; i++)
+            cellWindows[i] = windowsByCell.get(i).stream().mapToInt(Integer::intValue).toArray();
+
+        counts = new int[2][windows];
+        totals[0] = totals[1] = 0;
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                int index = board.index(r, c);
+                if (board.isSet(index, BitBoard.X)) make(index, BitBoard.X);
+                else if (board.isSet(index, BitBoard.O)) make(index, BitBoard.O);
+            }
+        }
+    }
+
+    @Override
+    public void make(int index, int side) {
+        int[] own = counts[side], other = counts[1 - side];
+        for (int window : cellWindows[index]) {
+            if (other[window] == 0) {
+                // Window stays live for this side and grows by one stone
+                totals[side] += weights[own[window] + 1] - weights[own[window]];
+            } else if (own[window] == 0) {
+                // Window was live for the opponent and is now dead
+                totals[1 - side] -= weights[other[window]];
+            }
+            own[window]++;
+        }
+    }
+
+    @Override
+    public void unmake(int index, int side) {
+        int[] own = counts[side], other = counts[1 - side];
+        for (int window : cellWindows[index]) {
+            own[window]--;
+            if (other[window] == 0) {
+                totals[side] -= weights[own[window] + 1] - weights[own[window]];
+            } else if (own[window] == 0) {
+                totals[1 - side] += weights[other[window]];
+            }
+        }
+    }
+
+    @Override
+    public int evaluate(int side) {
+        return totals[side] - totals[1 - side];
+    }
+}
@@ -0,0 +1,258 @@
+package tictactoe.engine;
+
+/**
+ * Monte Carlo Tree Search (UCT) for the AI player.
+ * Tree nodes live in an arena of primitive arrays indexed by node number, so no object is
+ * allocated per node and the arena is reused from move to move. Children of a node are
+ * allocated as one contiguous block when the node is expanded, restricted to the board's
+ * candidate moves. Playouts play uniformly random moves on a copy of the bitboard and
+ * check only the lines through each new stone for a win.
+ * A single instance is not thread-safe.
+ */
+class MctsSearch {
+    // UCT exploration constant (sqrt 2)
+    static final double EXPLORATION = 1.41421356;
+    // Terminal states of a node, seen from the side that moved into it
+    static final byte OPEN = 0, WIN = 1, DRAW = 2;
+
+    // Maximum number of nodes in the arena
+    final int capacity;
+    // Bit index of the move leading to each node
+    final int[] move;
+    // First child and number of children of each node; childCount 0 means not expanded
+    final int[] firstChild, childCount;
+    // Playouts through each node, and their results for the side that moved into it (2 per win, 1 per draw)
+    final int[] visits, score;
+    // Whether the move into each node ended the game
+    final byte[] terminal;
+    // Number of nodes in use
+    int size;
+
+    // Checked before every playout
+    volatile boolean stopRequested;
+    // Playouts and elapsed time of the last search
+    long playouts, elapsedNanos;
+
+    // Working copy of the position, and the side to move at the root
+    BitBoard board;
+    int rootSide;
+    // Nodes from the root to the current leaf
+    int[] path;
+    // Empty cells and moves played during a playout
+    int[] empty, played;
+    // xorshift random state
+    private long random = System.nanoTime() | 1;
+
+    /**
+     * @param capacity Maximum number of tree nodes; the tree stops growing when it is reached.
+     */
+    MctsSearch(int capacity) {
+        this.capacity = capacity;
+        move = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        visits = new int[capacity];
+        score = new int[capacity];
+        terminal = new byte[capacity];
+    }
+
+    /**
+     * Ends a running {@link #search} after its current playout; see {@link Search#stop()}.
+     */
+    void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Runs playouts until the time budget or the playout limit is reached, or stop() is called.
+     *
+     * @param state       Position to search; not modified.
+     * @param side        Side to move.
+     * @param budgetMs    Time budget in milliseconds.
+     * @param maxPlayouts Maximum number of playouts.
+     * @return Coordinates [row, col] of the most visited root move, or null if the board is full.
+     */
+    int[] search(BitBoard state, int side, long budgetMs, long maxPlayouts) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMs * 1_000_000L;
+        prepare(state, side);
+        size = 1;
+        childCount[0] = visits[0] = score[0] = 0;
+        terminal[0] = OPEN;
+        move[0] = -1;
+        playouts = 0;
+        stopRequested = false;
+
+        if (!board.isFull()) {
+            while (playouts < maxPlayouts && !stopRequested) {
+                // Check the clock every 64 playouts
+                if ((playouts & 63) == 0 && System.nanoTime() > deadline) break;
+                iterate();
+                playouts++;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return bestMove();
+    }
+
+    /**
+     * Copies the position to search and sizes the working buffers for it.
+     *
+     * @param state Position to search; not modified.
+     * @param side  Side to move.
+     */
+    void prepare(BitBoard state, int side) {
+        int cells = state.size * state.size;
+        board = state.copy();
+        rootSide = side;
+        if (path == null || path.length < cells + 1) {
+            path = new int[cells + 1];
+            empty = new int[cells];
+            played = new int[cells];
+        }
+    }
+
+    /**
+     * Adds the visit count of every root move of the last search to a table indexed by bit
+     * index, so the trees of several searches of the same position can be merged.
+     *
+     * @param total Visit counts per bit index, updated in place.
+     */
+    void addRootVisits(int[] total) {
+        for (int c = firstChild[0]; c < firstChild[0] + childCount[0]; c++)
+            total[move[c]] += visits[c];
+    }
+
+    /**
+     * @return Playouts per second achieved by the last search.
+     */
+    double playoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * One MCTS iteration: select a leaf by UCT, expand it, run a random playout
+     * and back the result up the path.
+     */
+    private void iterate() {
+        int node = 0, side = rootSide, depth = 0;
+        path[0] = 0;
+        while (childCount[node] > 0 && terminal[node] == OPEN) {
+            node = select(node);
+            board.set(move[node], side);
+            side = 1 - side;
+            path[++depth] = node;
+        }
+        if (terminal[node] == OPEN && (node == 0 || visits[node] > 0) && expand(node, side)) {
+            node = firstChild[node];
+            board.set(move[node], side);
+            side = 1 - side;
+            path[++depth] = node;
+        }
+
+        // side is now the side to move at the leaf
+        int winner;
+        if (terminal[node] == WIN) winner = 1 - side;
+        else if (terminal[node] == DRAW) winner = -1;
+        else winner = playout(side);
+
+        for (int d = depth; d >= 0; d--) {
+            int n = path[d];
+            // Odd depths were moved into by the root side
+            int mover = (d & 1) == 1 ? rootSide : 1 - rootSide;
+            visits[n]++;
+            if (winner < 0) score[n] += 1;
+            else if (winner == mover) score[n] += 2;
+            if (d > 0) board.clear(move[n], mover);
+        }
+    }
+
+    /**
+     * @return Child of the node with the highest UCT value; unvisited children come first.
+     */
+    private int select(int node) {
+        int first = firstChild[node], end = first + childCount[node];
+        double logParent = Math.log(visits[node]);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = first; c < end; c++) {
+            int n = visits[c];
+            if (n == 0) return c;
+            double value = score[c] / (2.0 * n) + EXPLORATION * Math.sqrt(logParent / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Allocates the children of a leaf for all candidate moves of the side to move.
+     *
+     * @return False if the arena has no room left, in which case the leaf stays unexpanded.
+     */
+    private boolean expand(int node, int side) {
+        int count = board.getCandidateMoves(empty);
+        if (count == 0 || size + count > capacity) return false;
+        boolean lastCell = board.count + 1 == board.size * board.size;
+        for (int i = 0; i < count; i++) {
+            int child = size + i, m = empty[i];
+            move[child] = m;
+            childCount[child] = visits[child] = score[child] = 0;
+            terminal[child] = board.winsAt(m, side) ? WIN : lastCell ? DRAW : OPEN;
+        }
+        firstChild[node] = size;
+        childCount[node] = count;
+        size += count;
+        return true;
+    }
+
+    /**
+     * Plays uniformly random moves until the game ends, then restores the board.
+     *
+     * @param side Side to move.
+     * @return Winning side, or -1 for a draw.
+     */
+    int playout(int side) {
+        int n = board.getAvailableMoves(empty), moves = 0, winner = -1, first = side;
+        while (n > 0) {
+            int r = nextInt(n);
+            int m = empty[r];
+            empty[r] = empty[--n];
+            boolean win = board.winsAt(m, side);
+            board.set(m, side);
+            played[moves++] = m;
+            if (win) {
+                winner = side;
+                break;
+            }
+            side = 1 - side;
+        }
+        // Even-numbered moves were played by the side that started the playout
+        for (int i = moves - 1; i >= 0; i--)
+            board.clear(played[i], (i & 1) == 0 ? first : 1 - first);
+        return winner;
+    }
+
+    /**
+     * @return Most visited root child as [row, col], or null if the root was never expanded.
+     */
+    private int[] bestMove() {
+        if (childCount[0] == 0) {
+            if (board.getCandidateMoves(empty) == 0) return null;
+            return new int[]{board.row(empty[0]), board.col(empty[0])};
+        }
+        int best = firstChild[0];
+        for (int c = firstChild[0]; c < firstChild[0] + childCount[0]; c++)
+            if (visits[c] > visits[best]) best = c;
+        return new int[]{board.row(move[best]), board.col(move[best])};
+    }
+
+    private int nextInt(int bound) {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (((random >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,33 @@
+package tictactoe.engine;
+
+/**
+ * A cell on the board, as chosen by a player or the engine. Immutable.
+ */
+public final class Move {
+    // Row and column of the cell, counted from 0 at the top left
+    public final int row, col;
+
+    /**
+     * @param row Row index of the cell.
+     * @param col Column index of the cell.
+     */
+    public Move(int row, int col) {
+        this.row = row;
+        this.col = col;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Move && ((Move) o).row == row && ((Move) o).col == col;
+    }
+
+    @Override
+    public int hashCode() {
+        return row * 31 + col;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + row + ", " + col + ")";
+    }
+}
@@ -0,0 +1,31 @@
+package tictactoe.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one {@link Engine#chooseMove} call, from the start of
+ * the search to the chosen move, so slow AI moves can be lined up with GC and CPU
+ * activity in JDK Mission Control.
+ */
+@Name("tictactoe.MoveSearch")
+@Label("AI Move Search")
+@Category({"Tic Tac Toe", "Engine"})
+@Description("Engine choosing one move")
+class MoveSearchEvent extends jdk.jfr.Event {
+    @Label("Board Size")
+    int boardSize;
+
+    @Label("Difficulty")
+    String difficulty;
+
+    @Label("Depth")
+    @Description("Deepest ply the search reached")
+    int depth;
+
+    @Label("Nodes")
+    @Description("Positions searched, or playouts for Monte Carlo")
+    long nodes;
+}
@@ -0,0 +1,93 @@
+package tictactoe.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solved results of the empty board and of every first move, as written by
+ * {@link ProofNumberSearch#main} and loaded by {@link Engine#setOpeningBook} for lookup without searching.
+ * Results are {@link ProofNumberSearch#WIN}, {@link ProofNumberSearch#DRAW} or
+ * {@link ProofNumberSearch#LOSS} from the first player's point of view. Immutable.
+ * <p>
+ * The file is plain text: a comment line, the board size and win length, the result of
+ * the empty board, then one line per symmetry-distinct first move with its row, column
+ * and result. Loading expands each move to all cells equivalent under a symmetry.
+ */
+class OpeningBook {
+    // Rules the results were solved for
+    final int size, winLength;
+    // Result of the empty board with the first player to move
+    final int emptyResult;
+    // Result after the first player's move, indexed by row * size + col
+    private final int[] results;
+
+    OpeningBook(int size, int winLength, int emptyResult, int[] results) {
+        this.size = size;
+        this.winLength = winLength;
+        this.emptyResult = emptyResult;
+        this.results = results;
+    }
+
+    /**
+     * @return Result with the first player's opening move at the cell, after perfect play by both sides.
+     */
+    int result(int row, int col) {
+        return results[row * size + col];
+    }
+
+    /**
+     * Writes the book, one line per symmetry-distinct first move.
+     */
+    void save(Path file) throws IOException {
+        BitBoard board = new BitBoard(size, winLength);
+        int[] buffer = new int[size * size];
+        int count = board.removeSymmetricMoves(buffer, board.getAvailableMoves(buffer));
+        List<String> lines = new ArrayList<>();
+        lines.add("# df-pn opening book: size winLength, empty-board result, then row col result per first move");
+        lines.add(size + " " + winLength);
+        lines.add(String.valueOf(emptyResult));
+        for (int i = 0; i < count; i++) {
+            int row = board.row(buffer[i]), col = board.col(buffer[i]);
+            lines.add(row + " " + col + " " + result(row, col));
+        }
+        Files.write(file, lines);
+    }
+
+    /**
+     * Reads a book written by {@link #save(Path)}.
+     *
+     * @throws IllegalArgumentException If a first move is missing or the file is malformed.
+     */
+    static OpeningBook load(Path file) throws IOException {
+        List<int[]> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split("\\s+");
+            int[] values = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) values[i] = Integer.parseInt(fields[i]);
+            rows.add(values);
+        }
+        if (rows.size() < 2 || rows.get(0).length != 2 || rows.get(1).length != 1)
+            throw new IllegalArgumentException("Malformed opening book: " + file);
+        int size = rows.get(0)[0], winLength = rows.get(0)[1];
+        BitBoard board = new BitBoard(size, winLength);
+        int[] results = new int[size * size];
+        boolean[] known = new boolean[size * size];
+        for (int[] move : rows.subList(2, rows.size())) {
+            if (move.length != 3) throw new IllegalArgumentException("Malformed opening book: " + file);
+            int index = board.index(move[0], move[1]);
+            for (int k = 0; k < BitBoard.SYMMETRIES; k++) {
+                int cell = board.symmetry[k][index];
+                results[board.row(cell) * size + board.col(cell)] = move[2];
+                known[board.row(cell) * size + board.col(cell)] = true;
+            }
+        }
+        for (boolean k : known)
+            if (!k) throw new IllegalArgumentException("Opening book misses first moves: " + file);
+        return new OpeningBook(size, winLength, rows.get(1)[0], results);
+    }
+}
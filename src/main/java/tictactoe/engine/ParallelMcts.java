@@ -0,0 +1,296 @@
+package tictactoe.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Multi-threaded Monte Carlo Tree Search in one of two modes.
+ * <p>
+ * {@link #ROOT_PARALLEL}: every thread grows its own independent {@link MctsSearch} tree
+ * from the same root; the visit counts of the root moves are summed at the end and the
+ * most visited move is played. Threads share nothing while searching.
+ * <p>
+ * {@link #TREE_PARALLEL}: all threads grow one shared tree whose visit and score counters
+ * are atomic. A thread adds a virtual loss to every node on its path while its playout is
+ * running, so the other threads see that path as less attractive and spread out over
+ * different leaves; the virtual loss is taken back when the result is backed up. A leaf is
+ * expanded by whichever thread claims it first, and the children are published by the
+ * write of their count.
+ * <p>
+ * In both modes the caller runs one thread and the executor the others.
+ */
+class ParallelMcts {
+    // Search modes
+    static final String ROOT_PARALLEL = "root parallel", TREE_PARALLEL = "tree parallel";
+    // Visits added to each node on a path while its playout is in progress, counted as losses
+    static final int VIRTUAL_LOSS = 3;
+    // childCount of a leaf whose children are being allocated by another thread
+    static final int EXPANDING = -1;
+
+    // ROOT_PARALLEL or TREE_PARALLEL
+    final String mode;
+    // Total number of searching threads including the caller
+    final int threads;
+    // Executor running the threads other than the caller
+    final ExecutorService executor;
+    // Maximum number of tree nodes, shared by all trees in root-parallel mode
+    final int capacity;
+
+    // Independent trees in root-parallel mode; per-thread board and playout state in tree-parallel mode
+    final MctsSearch[] searches;
+
+    // Shared tree (tree-parallel mode only), laid out like MctsSearch's arena
+    final int[] move, firstChild;
+    final byte[] terminal;
+    final AtomicIntegerArray childCount, visits, score;
+    final AtomicInteger size = new AtomicInteger();
+
+    // Checked by every thread's playout loop
+    volatile boolean stopRequested;
+    // Playouts and elapsed time of the last search
+    long playouts, elapsedNanos;
+
+    // Side to move at the root, deadline and playout limit of the running search
+    private int rootSide;
+    private long deadline, maxPlayouts;
+
+    /**
+     * @param mode     {@link #ROOT_PARALLEL} or {@link #TREE_PARALLEL}.
+     * @param threads  Total number of searching threads including the caller.
+     * @param capacity Maximum number of tree nodes over all threads.
+     * @param executor Executor for the {@code threads - 1} other threads; needs that many free threads.
+     */
+    ParallelMcts(String mode, int threads, int capacity, ExecutorService executor) {
+        if (!mode.equals(ROOT_PARALLEL) && !mode.equals(TREE_PARALLEL))
+            throw new IllegalArgumentException("Unknown MCTS mode: " + mode);
+        this.mode = mode;
+        this.threads = threads;
+        this.capacity = capacity;
+        this.executor = executor;
+        boolean shared = mode.equals(TREE_PARALLEL);
+        searches = new MctsSearch[threads];
+        for (int i = 0; i < threads; i++)
+            searches[i] = new MctsSearch(shared ? 1 : capacity / threads);
+        move = new int[shared ? capacity : 0];
+        firstChild = new int[move.length];
+        terminal = new byte[move.length];
+        childCount = new AtomicIntegerArray(move.length);
+        visits = new AtomicIntegerArray(move.length);
+        score = new AtomicIntegerArray(move.length);
+    }
+
+    /**
+     * Stops the playouts of every thread; see {@link Search#stop()}.
+     */
+    void stop() {
+        stopRequested = true;
+        for (MctsSearch search : searches) search.stop();
+    }
+
+    /**
+     * Runs playouts on all threads until the time budget or the playout limit is reached,
+     * or stop() is called.
+     *
+     * @param state       Position to search; not modified.
+     * @param side        Side to move.
+     * @param budgetMs    Time budget in milliseconds.
+     * @param maxPlayouts Maximum number of playouts over all threads.
+     * @return Coordinates [row, col] of the most visited root move, or null if the board is full.
+     */
+    int[] search(BitBoard state, int side, long budgetMs, long maxPlayouts) {
+        long start = System.nanoTime();
+        stopRequested = false;
+        rootSide = side;
+        deadline = start + budgetMs * 1_000_000L;
+        this.maxPlayouts = maxPlayouts;
+        boolean shared = mode.equals(TREE_PARALLEL);
+        if (shared) {
+            size.set(1);
+            move[0] = -1;
+            terminal[0] = MctsSearch.OPEN;
+            childCount.set(0, 0);
+            visits.set(0, 0);
+            score.set(0, 0);
+        }
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            MctsSearch search = searches[i];
+            running.add(executor.submit(() -> run(search, state, shared)));
+        }
+        run(searches[0], state, shared);
+        try {
+            for (Future<?> future : running) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        playouts = 0;
+        for (MctsSearch search : searches) playouts += search.playouts;
+        elapsedNanos = System.nanoTime() - start;
+        return shared ? sharedBestMove(state) : mergedBestMove(state);
+    }
+
+    /**
+     * @return Playouts per second over all threads achieved by the last search.
+     */
+    double playoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Body of one searching thread.
+     */
+    private void run(MctsSearch search, BitBoard state, boolean shared) {
+        long limit = maxPlayouts / threads;
+        if (!shared) {
+            long budgetMs = Math.max(0, (deadline - System.nanoTime()) / 1_000_000L);
+            search.search(state, rootSide, budgetMs, stopRequested ? 0 : limit);
+            return;
+        }
+        search.prepare(state, rootSide);
+        search.playouts = 0;
+        if (search.board.isFull()) return;
+        while (search.playouts < limit && !stopRequested) {
+            // Same clock polling as MctsSearch.search
+            if ((search.playouts & 63) == 0 && System.nanoTime() > deadline) break;
+            iterate(search);
+            search.playouts++;
+        }
+    }
+
+    /**
+     * One iteration on the shared tree, using the thread's own board copy.
+     */
+    private void iterate(MctsSearch search) {
+        BitBoard board = search.board;
+        int[] path = search.path;
+        int node = 0, side = rootSide, depth = 0;
+        path[0] = 0;
+        visits.addAndGet(0, VIRTUAL_LOSS);
+        while (childCount.get(node) > 0 && terminal[node] == MctsSearch.OPEN) {
+            node = descend(node, board, side);
+            side = 1 - side;
+            path[++depth] = node;
+        }
+        if (terminal[node] == MctsSearch.OPEN && (node == 0 || visits.get(node) > VIRTUAL_LOSS)
+                && expand(search, node, side)) {
+            node = descend(node, board, side);
+            side = 1 - side;
+            path[++depth] = node;
+        }
+
+        // side is now the side to move at the leaf
+        int winner;
+        if (terminal[node] == MctsSearch.WIN) winner = 1 - side;
+        else if (terminal[node] == MctsSearch.DRAW) winner = -1;
+        else winner = search.playout(side);
+
+        for (int d = depth; d >= 0; d--) {
+            int n = path[d];
+            // Odd depths were moved into by the root side
+            int mover = (d & 1) == 1 ? rootSide : 1 - rootSide;
+            if (winner < 0) score.addAndGet(n, 1);
+            else if (winner == mover) score.addAndGet(n, 2);
+            visits.addAndGet(n, 1 - VIRTUAL_LOSS);
+            if (d > 0) board.clear(move[n], mover);
+        }
+    }
+
+    /**
+     * Selects a child by UCT, adds a virtual loss to it and plays its move.
+     *
+     * @return The selected child.
+     */
+    private int descend(int node, BitBoard board, int side) {
+        int first = firstChild[node], end = first + childCount.get(node);
+        double logParent = Math.log(Math.max(1, visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = first; c < end; c++) {
+            int n = visits.get(c);
+            if (n == 0) {
+                best = c;
+                break;
+            }
+            double value = score.get(c) / (2.0 * n) + MctsSearch.EXPLORATION * Math.sqrt(logParent / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        visits.addAndGet(best, VIRTUAL_LOSS);
+        board.set(move[best], side);
+        return best;
+    }
+
+    /**
+     * Claims a leaf of the shared tree and allocates its children.
+     *
+     * @return False if another thread is expanding the leaf or the arena has no room left.
+     */
+    private boolean expand(MctsSearch search, int node, int side) {
+        if (!childCount.compareAndSet(node, 0, EXPANDING)) return false;
+        BitBoard board = search.board;
+        int count = board.getCandidateMoves(search.empty);
+        int first;
+        do {
+            first = size.get();
+            if (count == 0 || first + count > capacity) {
+                childCount.set(node, 0);
+                return false;
+            }
+        } while (!size.compareAndSet(first, first + count));
+
+        boolean lastCell = board.count + 1 == board.size * board.size;
+        for (int i = 0; i < count; i++) {
+            int child = first + i, m = search.empty[i];
+            move[child] = m;
+            terminal[child] = board.winsAt(m, side) ? MctsSearch.WIN : lastCell ? MctsSearch.DRAW : MctsSearch.OPEN;
+            childCount.set(child, 0);
+            visits.set(child, 0);
+            score.set(child, 0);
+        }
+        firstChild[node] = first;
+        // Publishes the children: readers check childCount before reading them
+        childCount.set(node, count);
+        return true;
+    }
+
+    /**
+     * @return Most visited root child of the shared tree as [row, col], or any candidate if the root was never expanded.
+     */
+    private int[] sharedBestMove(BitBoard state) {
+        if (childCount.get(0) <= 0) return fallbackMove(state);
+        int first = firstChild[0], best = first;
+        for (int c = first; c < first + childCount.get(0); c++)
+            if (visits.get(c) > visits.get(best)) best = c;
+        return new int[]{state.row(move[best]), state.col(move[best])};
+    }
+
+    /**
+     * @return Root move with the most visits summed over the independent trees, as [row, col].
+     */
+    private int[] mergedBestMove(BitBoard state) {
+        int[] total = new int[state.size * state.stride];
+        for (MctsSearch search : searches) search.addRootVisits(total);
+        int best = -1;
+        for (int i = 0; i < total.length; i++)
+            if (total[i] > 0 && (best < 0 || total[i] > total[best])) best = i;
+        if (best < 0) return fallbackMove(state);
+        return new int[]{state.row(best), state.col(best)};
+    }
+
+    private int[] fallbackMove(BitBoard state) {
+        int[] buffer = new int[state.size * state.size];
+        if (state.getCandidateMoves(buffer) == 0) return null;
+        return new int[]{state.row(buffer[0]), state.col(buffer[0])};
+    }
+}
@@ -0,0 +1,208 @@
+package tictactoe.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Alpha-beta search that splits the root moves over a {@link ForkJoinPool}.
+ * The first (best ordered) root move is searched alone to establish a bound, then the
+ * remaining root moves are searched in parallel. Every worker thread has its own
+ * {@link Search} with a private copy of the board. All of them probe and store the
+ * caller's lock-free transposition table, so what one move's search learned is kept for
+ * the next move. The workers also share the best root score so far, which they read when
+ * starting a root move and while searching it, so a better move found by one worker
+ * prunes the subtrees of the others.
+ */
+class ParallelRootSearch {
+    // Pool running the root moves
+    final ForkJoinPool pool;
+    // Orders the root moves and searches the first one; uses the caller's transposition table
+    final Search main;
+    // Creates the leaf evaluation of each search
+    final Supplier<Evaluator> evaluator;
+    // Best root score of the current iteration, shared by all workers
+    final AtomicInteger sharedAlpha = new AtomicInteger();
+    // One search per pool thread, each with its own board copy
+    final Map<Thread, Search> workers = new ConcurrentHashMap<>();
+
+    // Passed on to workers created after stop() was called
+    volatile boolean stopRequested;
+    // Score of the move returned by the last minimaxMoveWithAlphaBeta call
+    int rootScore;
+
+    /**
+     * @param state  Position to search; the search takes ownership of it.
+     * @param aiSide Side the search plays for.
+     * @param tt     Transposition table shared by the main search and all workers.
+     * @param pool   Pool to run the root moves on; its parallelism is the number of workers.
+     */
+    ParallelRootSearch(BitBoard state, int aiSide, TranspositionTable tt, ForkJoinPool pool) {
+        this(state, aiSide, tt, pool, LineEvaluator::new);
+    }
+
+    /**
+     * @param state     Position to search; the search takes ownership of it.
+     * @param aiSide    Side the search plays for.
+     * @param tt        Transposition table shared by the main search and all workers.
+     * @param pool      Pool to run the root moves on; its parallelism is the number of workers.
+     * @param evaluator Creates the leaf evaluation of the main search and of each worker.
+     */
+    ParallelRootSearch(BitBoard state, int aiSide, TranspositionTable tt, ForkJoinPool pool, Supplier<Evaluator> evaluator) {
+        this.pool = pool;
+        this.evaluator = evaluator;
+        this.main = new Search(state, aiSide, tt, evaluator.get());
+    }
+
+    /**
+     * Stops the main search and every worker; see {@link Search#stop()}.
+     */
+    void stop() {
+        stopRequested = true;
+        main.stop();
+        workers.values().forEach(Search::stop);
+    }
+
+    /**
+     * Iterative deepening over {@link #minimaxMoveWithAlphaBeta(int)}, with the same
+     * budget and stopping rules as {@link Search#iterativeDeepening(int, long)}.
+     *
+     * @param maxDepth Deepest iteration to run.
+     * @param budgetMs Time budget in milliseconds.
+     * @return Coordinates [row, col] of the best move, or null if the board is full.
+     */
+    int[] iterativeDeepening(int maxDepth, long budgetMs) {
+        stopRequested = false;
+        main.tt.newSearch();
+        main.begin(System.nanoTime() + budgetMs * 1_000_000L);
+        workers.clear();
+
+        int[] bestMove = null;
+        BitBoard state = main.state;
+        int limit = Math.min(maxDepth, state.size * state.size - state.count);
+        for (int depth = 1; depth <= limit; depth++) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            int[] move = minimaxMoveWithAlphaBeta(depth);
+            if (move == null) break;
+            if (event.shouldCommit()) {
+                event.boardSize = state.size;
+                event.difficulty = main.difficulty;
+                event.depth = depth;
+                event.nodes = nodes();
+                event.score = rootScore;
+                event.commit();
+            }
+            bestMove = move;
+            if (Math.abs(rootScore) > Search.WIN_SCORE - Search.MAX_PLY) break;
+        }
+
+        return bestMove != null ? bestMove : main.fallbackMove();
+    }
+
+    /**
+     * Searches all root moves to the given depth, splitting them over the pool.
+     *
+     * @param maxDepth Maximum depth for minimax search.
+     * @return Coordinates [row, col] of the best move, or null if the search was stopped.
+     */
+    int[] minimaxMoveWithAlphaBeta(int maxDepth) {
+        BitBoard state = main.state;
+        int aiSide = main.aiSide;
+
+        // Order the root moves on the calling thread
+        int[] buffer = main.moveBuffers[0];
+        int count = state.removeSymmetricMoves(buffer, state.getCandidateMoves(buffer));
+        if (count == 0) return null;
+        int t = state.canonicalTransform();
+        long key = state.symHash[t];
+        long entry = main.tt.probe(key);
+        main.scoreMoves(buffer, count, 0, aiSide, entry != 0 ? main.fromCanonical(TranspositionTable.move(entry), t) : -1);
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++) moves[i] = main.nextMove(0, i, count);
+
+        // Search the first move alone so the parallel moves start with a real bound
+        main.play(moves[0], aiSide);
+        int bestScore = main.minimaxABLimited(false, 1, maxDepth, Integer.MIN_VALUE, Integer.MAX_VALUE, moves[0]);
+        main.undo(moves[0], aiSide);
+        if (main.aborted) return null;
+        int bestMove = moves[0];
+        sharedAlpha.set(bestScore);
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            tasks.add(() -> searchRootMove(move, maxDepth));
+        }
+        try {
+            List<Future<Integer>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                int score = results.get(i).get();
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = moves[i + 1];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        for (Search worker : workers.values())
+            if (worker.aborted) return null;
+
+        rootScore = bestScore;
+        main.tt.store(key, maxDepth, TranspositionTable.EXACT, Search.scoreToTable(bestScore, 0), state.symmetry[t][bestMove]);
+        return new int[]{state.row(bestMove), state.col(bestMove)};
+    }
+
+    /**
+     * Searches one root move on the calling pool thread's worker.
+     *
+     * @return Exact score of the move, or {@link Integer#MIN_VALUE} if it cannot beat the shared bound.
+     */
+    private int searchRootMove(int move, int maxDepth) {
+        Search worker = workers.computeIfAbsent(Thread.currentThread(), thread -> newWorker());
+        worker.play(move, main.aiSide);
+        int score = worker.minimaxABLimited(false, 1, maxDepth, sharedAlpha.get(), Integer.MAX_VALUE, move);
+        worker.undo(move, main.aiSide);
+        // A score not above the bound is only an upper bound, since the bound may have
+        // been raised during the search; the move that raised it reports its exact score
+        if (worker.aborted || score <= sharedAlpha.get()) return Integer.MIN_VALUE;
+        sharedAlpha.accumulateAndGet(score, Math::max);
+        return score;
+    }
+
+    private Search newWorker() {
+        Search worker = new Search(main.state.copy(), main.aiSide, main.tt, evaluator.get());
+        worker.begin(main.deadline);
+        worker.sharedAlpha = sharedAlpha;
+        if (stopRequested) worker.stop();
+        return worker;
+    }
+
+    /**
+     * @return Nodes visited by the main search and all workers in the current search,
+     * counted as in {@link Search#totalNodes()}.
+     */
+    long nodes() {
+        long nodes = main.totalNodes();
+        for (Search worker : workers.values()) nodes += worker.totalNodes();
+        return nodes;
+    }
+
+    /**
+     * @return Nodes visited by each worker, e.g. to check how evenly the work was split.
+     */
+    long[] workerNodes() {
+        return workers.values().stream().mapToLong(Search::totalNodes).toArray();
+    }
+}
@@ -0,0 +1,131 @@
+package tictactoe.engine;
+
+import java.util.Arrays;
+
+/**
+ * Game-theoretic solution of 3x3 tic tac toe, used by the Impossible AI.
+ * Every position is encoded from the point of view of the side to move as a base-3
+ * number (0 empty, 1 own stone, 2 opponent stone, cell i weighted by 3^i), and the table
+ * holds the optimal move and result for each of the 3^9 codes in one byte.
+ * All 5,478 positions reachable from the empty board are covered, so a lookup is O(1).
+ * The table is built by a memoized negamax the first time the class is used.
+ */
+final class PerfectPlay3x3 {
+    // Number of position codes
+    private static final int CODES = 19683;
+    // Table byte for a code that has not been solved yet
+    private static final byte UNSOLVED = -1;
+    // Low nibble of a table byte for positions without a move (game over)
+    private static final int NO_MOVE = 0xF;
+    // Cells of the eight winning lines
+    private static final int[][] LINES = {
+            {0, 1, 2}, {3, 4, 5}, {6, 7, 8}, {0, 3, 6}, {1, 4, 7}, {2, 5, 8}, {0, 4, 8}, {2, 4, 6}};
+    // Powers of three by cell
+    private static final int[] POW = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+    // Best move in the low nibble, result for the side to move plus one (0 loss, 1 draw, 2 win) above it
+    private static final byte[] TABLE = new byte[CODES];
+    // Negamax score per code during generation: faster wins and slower losses score higher
+    private static final byte[] SCORES = new byte[CODES];
+
+    static {
+        Arrays.fill(TABLE, UNSOLVED);
+        for (int code = 0; code < CODES; code++) solve(code);
+    }
+
+    private PerfectPlay3x3() {
+    }
+
+    /**
+     * Looks up an optimal move for the side to move. Among winning moves the fastest win
+     * is chosen, among losing moves the slowest loss.
+     *
+     * @param board 3x3 board.
+     * @param side  Side to move.
+     * @return Bit index of the move, or -1 if the game is already over.
+     */
+    static int bestMove(BitBoard board, int side) {
+        int cell = TABLE[encode(board, side)] & NO_MOVE;
+        return cell == NO_MOVE ? -1 : board.index(cell / 3, cell % 3);
+    }
+
+    /**
+     * @param board 3x3 board.
+     * @param side  Side to move.
+     * @return 1 if the side to move wins with perfect play, 0 for a draw, -1 for a loss.
+     */
+    static int result(BitBoard board, int side) {
+        return (TABLE[encode(board, side)] >> 4) - 1;
+    }
+
+    private static int encode(BitBoard board, int side) {
+        int code = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int index = board.index(cell / 3, cell % 3);
+            if (board.isSet(index, side)) code += POW[cell];
+            else if (board.isSet(index, 1 - side)) code += 2 * POW[cell];
+        }
+        return code;
+    }
+
+    /**
+     * Solves a position code by negamax, memoizing every position it reaches.
+     *
+     * @return Score for the side to move: 10 minus the stones on the board at the end
+     *         for a win, the negation for a loss, 0 for a draw.
+     */
+    private static int solve(int code) {
+        if (TABLE[code] != UNSOLVED) return SCORES[code];
+
+        int stones = 0;
+        for (int cell = 0; cell < 9; cell++)
+            if (digit(code, cell) != 0) stones++;
+
+        int score, move = NO_MOVE;
+        if (hasLine(code, 2)) {
+            // The opponent completed a line with the last move
+            score = stones - 10;
+        } else if (hasLine(code, 1) || stones == 9) {
+            // Not reachable by play (own line) or a full board: nothing to move
+            score = hasLine(code, 1) ? 10 - stones : 0;
+        } else {
+            score = Integer.MIN_VALUE;
+            for (int cell = 0; cell < 9; cell++) {
+                if (digit(code, cell) != 0) continue;
+                // Place own stone and swap perspective: own stones become the opponent's
+                int child = swap(code + POW[cell]);
+                int value = -solve(child);
+                if (value > score) {
+                    score = value;
+                    move = cell;
+                }
+            }
+        }
+        SCORES[code] = (byte) score;
+        TABLE[code] = (byte) (move | (Integer.signum(score) + 1) << 4);
+        return score;
+    }
+
+    private static boolean hasLine(int code, int digit) {
+        for (int[] line : LINES)
+            if (digit(code, line[0]) == digit && digit(code, line[1]) == digit && digit(code, line[2]) == digit)
+                return true;
+        return false;
+    }
+
+    private static int digit(int code, int cell) {
+        return code / POW[cell] % 3;
+    }
+
+    /**
+     * Exchanges own and opponent stones in a code.
+     */
+    private static int swap(int code) {
+        int swapped = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int d = digit(code, cell);
+            if (d != 0) swapped += (3 - d) * POW[cell];
+        }
+        return swapped;
+    }
+}
@@ -0,0 +1,294 @@
+package tictactoe.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Depth-first proof-number search (df-pn) that proves the game-theoretic result of a
+ * position with the same rules as {@link BitBoard#checkWin(int)}.
+ * <p>
+ * A proof number is the least number of leaves that still have to be proved to show
+ * that the attacker wins, a disproof number the least number to show that it does not.
+ * The search always expands the most-proving child and stays in a subtree until its
+ * numbers exceed the thresholds passed down from the parent, so it needs no explicit tree:
+ * the numbers of positions live in a fixed-size table, keyed by the canonical symmetry
+ * hash, whose four-slot buckets evict the entry with the smallest subtree when they are full.
+ * Each position on the current path keeps its children's numbers in per-ply buffers while
+ * it is being expanded, so an eviction can never undo the progress the search is relying
+ * on. Memory use is therefore bounded by the table size; a small table only makes the
+ * search re-expand positions it has forgotten.
+ * <p>
+ * A draw is shown by disproving both "the side to move wins" and "the opponent wins".
+ * A single instance is not thread-safe.
+ * <p>
+ * Usage: {@code java tictactoe.engine.ProofNumberSearch size winLength [tableBits [bookFile]]}
+ * solves the empty board and every opening move, printing progress as it goes, and saves
+ * the results as an {@link OpeningBook} if a file is given.
+ */
+class ProofNumberSearch {
+    // Results, from the point of view of the side to move
+    static final int WIN = 1, DRAW = 0, LOSS = -1;
+    // Proof or disproof number of a settled position; sums saturate at this value
+    static final int INFINITY = 100_000_000;
+
+    /**
+     * Receives progress reports while a proof is running.
+     */
+    interface Progress {
+        void report(ProofNumberSearch search);
+    }
+
+    // Slots per bucket
+    static final int BUCKET = 4;
+
+    // Canonical keys, proof and disproof numbers, and subtree sizes, BUCKET slots per bucket
+    private final long[] keys;
+    private final int[] proof, disproof;
+    private final long[] work;
+    // Mask selecting the first slot of a bucket
+    private final int mask;
+
+    // Called every progressInterval nodes, or never if null
+    Progress progress;
+    long progressInterval = 1 << 20;
+    // Nodes expanded, table entries in use, and the root's numbers from the latest update
+    long nodes;
+    int stored;
+    int rootProof, rootDisproof;
+
+    // Board being searched and the side trying to win
+    private BitBoard board;
+    private int attacker;
+    // Moves, their canonical keys, and their proof and disproof numbers, per ply
+    private int[][] moves;
+    private long[][] childKeys;
+    private int[][] childProof, childDisproof;
+    // Numbers of the position the last search call returned from
+    private int lastProof, lastDisproof;
+
+    /**
+     * Creates a solver whose table holds {@code 2^tableBits} positions.
+     *
+     * @param tableBits Base-two logarithm of the number of table entries.
+     */
+    ProofNumberSearch(int tableBits) {
+        keys = new long[1 << tableBits];
+        proof = new int[1 << tableBits];
+        disproof = new int[1 << tableBits];
+        work = new long[1 << tableBits];
+        mask = (1 << tableBits) - BUCKET;
+    }
+
+    /**
+     * Solves a position.
+     *
+     * @param state Position to solve; restored before returning.
+     * @param side  Side to move.
+     * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move under perfect play.
+     */
+    int solve(BitBoard state, int side) {
+        if (prove(state, side, side)) return WIN;
+        return prove(state, 1 - side, side) ? LOSS : DRAW;
+    }
+
+    /**
+     * Proves or disproves that one side wins by force.
+     *
+     * @param state    Position to search; restored before returning.
+     * @param attacker Side whose win is to be proved.
+     * @param side     Side to move.
+     * @return True if the attacker wins against any defence.
+     */
+    boolean prove(BitBoard state, int attacker, int side) {
+        int cells = state.size * state.size;
+        if (moves == null || moves[0].length < cells || moves.length < cells + 1) {
+            moves = new int[cells + 1][cells];
+            childKeys = new long[cells + 1][cells];
+            childProof = new int[cells + 1][cells];
+            childDisproof = new int[cells + 1][cells];
+        }
+        clear();
+        board = state;
+        this.attacker = attacker;
+        nodes = 0;
+        // A game already won is proved for the winner whichever side is to move
+        if (state.checkWin(1 - side)) return attacker == 1 - side;
+        if (state.checkWin(side)) return side == attacker;
+        if (state.isFull()) return false;
+        long key = state.symHash[state.canonicalTransform()];
+        search(key, side, 0, INFINITY, INFINITY);
+        return lastProof == 0;
+    }
+
+    /**
+     * Empties the table.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(proof, 0);
+        Arrays.fill(disproof, 0);
+        Arrays.fill(work, 0);
+        stored = 0;
+    }
+
+    /**
+     * Expands a position until its proof number reaches proofLimit or its disproof number
+     * reaches disproofLimit, then stores both in the table and in lastProof and lastDisproof.
+     *
+     * @param key  Canonical key of the position.
+     * @param side Side to move; the position is not terminal.
+     * @param ply  Distance from the root, indexing the per-ply buffers.
+     */
+    private void search(long key, int side, int ply, int proofLimit, int disproofLimit) {
+        long startNodes = nodes++;
+        if (progress != null && nodes % progressInterval == 0) progress.report(this);
+
+        // Generate the children once, with their numbers from the game rules or the table
+        int[] buffer = moves[ply];
+        long[] keysOut = childKeys[ply];
+        int[] proofs = childProof[ply], disproofs = childDisproof[ply];
+        int count = board.getAvailableMoves(buffer);
+        boolean lastCell = board.count + 1 == board.size * board.size;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            board.set(move, side);
+            keysOut[i] = board.symHash[board.canonicalTransform()];
+            board.clear(move, side);
+            boolean won = board.winsAt(move, side);
+            if (won || lastCell) {
+                // The game ends: proved if the attacker just won, disproved otherwise
+                boolean proved = won && side == attacker;
+                proofs[i] = proved ? 0 : INFINITY;
+                disproofs[i] = proved ? INFINITY : 0;
+            } else {
+                int slot = find(keysOut[i]);
+                proofs[i] = slot < 0 ? 1 : proof[slot];
+                disproofs[i] = slot < 0 ? 1 : disproof[slot];
+            }
+        }
+
+        boolean or = side == attacker;
+        int pn, dn;
+        while (true) {
+            // At an attacker node the proof number is the smallest child's and the
+            // disproof number the sum; at a defender node the other way round
+            int best = -1, bestNumber = INFINITY + 1, secondNumber = INFINITY, sum = 0, bestOther = 0;
+            for (int i = 0; i < count; i++) {
+                int number = or ? proofs[i] : disproofs[i], other = or ? disproofs[i] : proofs[i];
+                sum = Math.min(INFINITY, sum + other);
+                if (number < bestNumber) {
+                    secondNumber = bestNumber;
+                    bestNumber = number;
+                    bestOther = other;
+                    best = i;
+                } else if (number < secondNumber) {
+                    secondNumber = number;
+                }
+            }
+            pn = or ? bestNumber : sum;
+            dn = or ? sum : bestNumber;
+            if (ply == 0) {
+                rootProof = pn;
+                rootDisproof = dn;
+            }
+            if (pn >= proofLimit || dn >= disproofLimit) break;
+
+            // Descend into the most-proving child with thresholds that send the search
+            // back here as soon as another child becomes the better choice
+            int childProofLimit, childDisproofLimit;
+            int secondLimit = Math.min(INFINITY, secondNumber + 1);
+            if (or) {
+                childProofLimit = Math.min(proofLimit, secondLimit);
+                childDisproofLimit = Math.min(INFINITY, disproofLimit - dn + bestOther);
+            } else {
+                childProofLimit = Math.min(INFINITY, proofLimit - pn + bestOther);
+                childDisproofLimit = Math.min(disproofLimit, secondLimit);
+            }
+            int move = buffer[best];
+            board.set(move, side);
+            search(keysOut[best], 1 - side, ply + 1, childProofLimit, childDisproofLimit);
+            board.clear(move, side);
+            proofs[best] = lastProof;
+            disproofs[best] = lastDisproof;
+        }
+        store(key, pn, dn, nodes - startNodes);
+        lastProof = pn;
+        lastDisproof = dn;
+    }
+
+    /**
+     * @return Table slot holding the key, or -1 if it is not stored.
+     */
+    private int find(long key) {
+        int i = (int) key & mask;
+        for (int slot = i; slot < i + BUCKET; slot++)
+            if (keys[slot] == key && work[slot] != 0) return slot;
+        return -1;
+    }
+
+    /**
+     * Stores a position's numbers, replacing the entry with the smaller subtree when the bucket is full.
+     */
+    private void store(long key, int pn, int dn, long subtree) {
+        int i = find(key);
+        if (i < 0) {
+            int first = (int) key & mask;
+            i = first;
+            for (int slot = first + 1; slot < first + BUCKET; slot++)
+                if (work[slot] < work[i]) i = slot;
+            if (work[i] == 0) stored++;
+        }
+        keys[i] = key;
+        proof[i] = pn;
+        disproof[i] = dn;
+        work[i] = Math.max(1, subtree);
+    }
+
+    /**
+     * @return Fraction of the table in use, in the range [0, 1].
+     */
+    double fill() {
+        return (double) stored / keys.length;
+    }
+
+    /**
+     * Solves the empty board and every opening move of the given size and win length,
+     * optionally saving them as an opening book.
+     */
+    public static void main(String[] args) throws IOException {
+        int size = Integer.parseInt(args[0]), winLength = Integer.parseInt(args[1]);
+        int tableBits = args.length > 2 ? Integer.parseInt(args[2]) : 22;
+        ProofNumberSearch solver = new ProofNumberSearch(tableBits);
+        long start = System.nanoTime();
+        solver.progress = s -> System.out.printf("  %,d nodes, root pn %d dn %d, table %.1f%% full, %.1f s%n",
+                s.nodes, s.rootProof, s.rootDisproof, s.fill() * 100, (System.nanoTime() - start) / 1e9);
+
+        BitBoard board = new BitBoard(size, winLength);
+        int emptyResult = solver.solve(board, BitBoard.X);
+        System.out.printf("%dx%d, win length %d: %s%n", size, size, winLength, name(emptyResult));
+        // Opening moves, deduplicated by symmetry, answered by O
+        int[] buffer = new int[size * size];
+        int count = board.removeSymmetricMoves(buffer, board.getAvailableMoves(buffer));
+        int[] results = new int[size * size];
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            board.set(move, BitBoard.X);
+            int result = -solver.solve(board, BitBoard.O);
+            board.clear(move, BitBoard.X);
+            System.out.printf("X at (%d, %d): %s%n", board.row(move), board.col(move), name(result));
+            for (int k = 0; k < BitBoard.SYMMETRIES; k++) {
+                int cell = board.symmetry[k][move];
+                results[board.row(cell) * size + board.col(cell)] = result;
+            }
+        }
+        if (args.length > 3) {
+            new OpeningBook(size, winLength, emptyResult, results).save(Path.of(args[3]));
+            System.out.println("Saved opening book to " + args[3]);
+        }
+    }
+
+    private static String name(int result) {
+        return result == WIN ? "first player wins" : result == LOSS ? "second player wins" : "draw";
+    }
+}
@@ -0,0 +1,37 @@
+package tictactoe.engine;
+
+/**
+ * Board size and the number of marks in a row needed to win. Immutable.
+ */
+public final class Rules {
+    // Board size (e.g. 3, 5, 9)
+    public final int size;
+    // Number of consecutive marks required to win
+    public final int winLength;
+
+    /**
+     * @param size      Board size.
+     * @param winLength Number of consecutive marks required to win; at most {@code size}.
+     */
+    public Rules(int size, int winLength) {
+        if (size < 1 || winLength < 1 || winLength > size)
+            throw new IllegalArgumentException("Invalid rules: " + size + "x" + size + ", " + winLength + " in a row");
+        this.size = size;
+        this.winLength = winLength;
+    }
+
+    /**
+     * Standard rules for a board size: 3 in a row on 3x3, 4 on 5x5 and 5 on larger boards.
+     *
+     * @param size Board size.
+     * @return Rules for that size.
+     */
+    public static Rules forSize(int size) {
+        return new Rules(size, size == 3 ? 3 : size == 5 ? 4 : Math.min(size, 5));
+    }
+
+    @Override
+    public String toString() {
+        return size + "x" + size + ", " + winLength + " in a row";
+    }
+}
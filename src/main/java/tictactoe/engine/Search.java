@@ -0,0 +1,615 @@
+package tictactoe.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Depth-limited minimax search with alpha-beta pruning for the AI player.
+ * A search works on its own copy of the board, so it can run on a background
+ * thread while the GUI keeps its state; a single instance is not thread-safe.
+ */
+class Search {
+    // Score of a won position; a win found sooner scores higher
+    static final int WIN_SCORE = 1_000_000;
+    // Upper bound on search depth, used to recognise win/loss scores
+    static final int MAX_PLY = 1024;
+    // Bound above every score, so search windows can be negated without overflow
+    static final int INFINITY = WIN_SCORE + MAX_PLY;
+    // Half-width of the first aspiration window around an earlier iteration's score
+    static final int ASPIRATION_WINDOW = 64;
+    // Late move reductions apply from this move in the searched order on, at nodes with at least LMR_MIN_REMAINING plies left
+    static final int LMR_MIN_MOVES = 3, LMR_MIN_REMAINING = 3;
+    // Largest gain in evaluation expected from a quiet move, indexed by the plies left to the horizon
+    static final int[] FUTILITY_MARGIN = {0, 256, 1024};
+
+    // Board copy the search makes and unmakes moves on
+    final BitBoard state;
+    // Side indexes of the AI (maximizing) and the human player (minimizing)
+    final int aiSide, playerSide;
+    // Transposition table, shared with later searches of the same game
+    final TranspositionTable tt;
+    // Static evaluation of positions at the depth limit
+    final Evaluator evaluator;
+
+    // System.nanoTime() at which the running search must stop
+    long deadline = Long.MAX_VALUE;
+    // Set by stop() from another thread to end the search early
+    volatile boolean stopRequested;
+    // Set once the search has to stop; every search level unwinds without using its result
+    boolean aborted;
+    // Interior nodes visited by the current search; see totalNodes() for the reported count
+    long nodes;
+    // Score of the move returned by the last minimaxMoveWithAlphaBeta call
+    int rootScore;
+    // Depth of the last iteration completed by deepen
+    int completedDepth;
+    // Best root score found by any worker of a parallel root search, or null when searching alone
+    AtomicInteger sharedAlpha;
+    // Lazy SMP helper number; helpers (above 0) perturb the move order so threads diverge
+    int helperId;
+    // Engine difficulty the search plays at, recorded in its iteration events; null outside the engine
+    String difficulty;
+    // Whether late move reductions and futility pruning are used; off on small boards,
+    // which are searched to the end and should keep exact results
+    boolean selective;
+    // Preallocated move lists, one per ply, holding bit indexes of the moves to search
+    final int[][] moveBuffers;
+    // Ordering scores matching moveBuffers entry by entry
+    final int[][] orderScores;
+    // Two killer moves per ply: moves that recently caused a cutoff at that ply
+    final int[][] killers;
+    // History heuristic indexed by [side][bit index], rewarding moves that caused cutoffs
+    final int[][] history;
+
+    // Beta cutoffs, and how many of them came from the first move searched
+    long cutoffs, firstMoveCutoffs;
+    // Positions scored by the evaluator at the depth limit
+    long leafEvaluations;
+    // Deepest ply the search has reached
+    int maxDepthReached;
+    // Null-window searches that failed high and had to be repeated with the full window
+    long researches;
+    // Moves searched at reduced depth, and moves skipped by futility pruning
+    long reductions, futilityPrunes;
+    // Iterations searched with an aspiration window, and how many fell below or above it
+    long aspirationSearches, aspirationFailLows, aspirationFailHighs;
+
+    // Ordering score bands, highest searched first; history scores stay below KILLER_SCORE
+    static final int TT_MOVE_SCORE = 1 << 30, WIN_MOVE_SCORE = 1 << 29, BLOCK_SCORE = 1 << 28,
+            KILLER_SCORE = 1 << 26;
+
+    /**
+     * Creates a search using the default {@link LineEvaluator}.
+     *
+     * @param state  Position to search; the search takes ownership of it.
+     * @param aiSide Side the search plays for.
+     * @param tt     Transposition table to use.
+     */
+    Search(BitBoard state, int aiSide, TranspositionTable tt) {
+        this(state, aiSide, tt, new LineEvaluator());
+    }
+
+    /**
+     * @param state     Position to search; the search takes ownership of it.
+     * @param aiSide    Side the search plays for.
+     * @param tt        Transposition table to use.
+     * @param evaluator Leaf evaluation; reset to the given position here.
+     */
+    Search(BitBoard state, int aiSide, TranspositionTable tt, Evaluator evaluator) {
+        this.state = state;
+        this.aiSide = aiSide;
+        this.playerSide = 1 - aiSide;
+        this.tt = tt;
+        this.evaluator = evaluator;
+        evaluator.reset(state);
+        int cells = state.size * state.size;
+        this.moveBuffers = new int[cells + 1][cells];
+        this.orderScores = new int[cells + 1][cells];
+        this.killers = new int[cells + 1][2];
+        this.history = new int[2][state.size * state.stride];
+        this.selective = state.size >= 5;
+    }
+
+    /**
+     * Node count reported everywhere the engine measures search work: interior nodes plus
+     * positions scored at the depth limit. Positions ended by a win or a full board are not counted.
+     *
+     * @return Nodes searched by the current search.
+     */
+    long totalNodes() {
+        return nodes + leafEvaluations;
+    }
+
+    /**
+     * Asks a running search to finish as soon as possible.
+     * Safe to call from any thread; the search then returns the best move
+     * of its last completed iteration.
+     */
+    void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Iterative deepening driver around {@link #minimaxMoveWithAlphaBeta(int)}.
+     * Searches depth 1, 2, 3... until the time budget runs out, the depth limit is reached
+     * or the game result is proven, and returns the best move of the last completed depth.
+     * From depth 3 on, each iteration starts with a narrow aspiration window around the
+     * score of the iteration two depths before, widened and searched again whenever the
+     * score falls outside it.
+     * An iteration still running at the deadline or when {@link #stop()} is called
+     * is aborted and its result discarded.
+     *
+     * @param maxDepth Deepest iteration to run.
+     * @param budgetMs Time budget in milliseconds.
+     * @return Coordinates [row, col] of the best move, or null if the board is full.
+     */
+    int[] iterativeDeepening(int maxDepth, long budgetMs) {
+        tt.newSearch();
+        begin(System.nanoTime() + budgetMs * 1_000_000L);
+        return deepen(maxDepth);
+    }
+
+    /**
+     * Iteration loop of {@link #iterativeDeepening(int, long)}, for callers that have
+     * already started the transposition table generation and called {@link #begin(long)}.
+     *
+     * @param maxDepth Deepest iteration to run.
+     * @return Coordinates [row, col] of the best move, or null if the board is full.
+     */
+    int[] deepen(int maxDepth) {
+        int[] bestMove = null;
+        int limit = Math.min(maxDepth, state.size * state.size - state.count);
+        // Scores of the last two iterations; the evaluation swings with the side that moves
+        // last, so an iteration's window is centred on the score two depths back
+        int previous = 0, beforePrevious = 0;
+        for (int depth = 1; depth <= limit; depth++) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            int[] move = depth <= 2 ? minimaxMoveWithAlphaBeta(depth) : aspirationSearch(depth, beforePrevious);
+            if (aborted) break;
+            if (event.shouldCommit()) {
+                event.boardSize = state.size;
+                event.difficulty = difficulty;
+                event.depth = depth;
+                event.nodes = totalNodes();
+                event.score = rootScore;
+                event.helper = helperId;
+                event.commit();
+            }
+            completedDepth = depth;
+            beforePrevious = previous;
+            previous = rootScore;
+            bestMove = move;
+            // A proven win or loss cannot change with more depth
+            if (Math.abs(rootScore) > WIN_SCORE - MAX_PLY) break;
+        }
+        deadline = Long.MAX_VALUE;
+
+        // Not even depth 1 finished in time
+        return bestMove != null ? bestMove : fallbackMove();
+    }
+
+    /**
+     * Move to play when not even depth 1 finished in time: the first move in search order,
+     * i.e. the transposition table move if there is one, otherwise the best ordered
+     * candidate near the stones.
+     *
+     * @return Coordinates [row, col] of the move, or null if the board is full.
+     */
+    int[] fallbackMove() {
+        int[] moves = moveBuffers[0];
+        int count = state.getCandidateMoves(moves);
+        if (count == 0) return null;
+        int t = state.canonicalTransform();
+        long entry = tt.probe(state.symHash[t]);
+        scoreMoves(moves, count, 0, aiSide, entry != 0 ? fromCanonical(TranspositionTable.move(entry), t) : -1);
+        int index = nextMove(0, 0, count);
+        return new int[]{state.row(index), state.col(index)};
+    }
+
+    /**
+     * Searches the root with a window around an earlier iteration's score, widening it
+     * on the failing side until the score falls inside. Win and loss scores are searched
+     * with the full window, since they are far from any evaluation.
+     *
+     * @param depth    Depth of the iteration.
+     * @param previous Score of the earlier iteration to centre the window on.
+     * @return Coordinates [row, col] of the best move, or null if the search was aborted.
+     */
+    int[] aspirationSearch(int depth, int previous) {
+        if (Math.abs(previous) > WIN_SCORE - MAX_PLY) return minimaxMoveWithAlphaBeta(depth);
+        aspirationSearches++;
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previous - delta, beta = previous + delta;
+        while (true) {
+            int[] move = minimaxMoveWithAlphaBeta(depth, alpha, beta);
+            if (aborted) return null;
+            if (rootScore <= alpha && alpha > -INFINITY) {
+                aspirationFailLows++;
+            } else if (rootScore >= beta && beta < INFINITY) {
+                aspirationFailHighs++;
+            } else {
+                return move;
+            }
+            // Widen the failing side only; past a few steps, or once a win or loss shows
+            // up, fall back to the full window
+            delta *= 4;
+            boolean full = delta > WIN_SCORE / 16 || Math.abs(rootScore) > WIN_SCORE - MAX_PLY;
+            if (rootScore <= alpha) alpha = full ? -INFINITY : previous - delta;
+            else beta = full ? INFINITY : previous + delta;
+        }
+    }
+
+    /**
+     * @return Fraction of aspiration iterations whose first window failed low or high, in the range [0, 1].
+     */
+    double aspirationFailRate() {
+        return aspirationSearches == 0 ? 0 : (double) (aspirationFailLows + aspirationFailHighs) / aspirationSearches;
+    }
+
+    /**
+     * Resets the per-search state before a new search.
+     *
+     * @param deadline System.nanoTime() at which the search must stop.
+     */
+    void begin(long deadline) {
+        this.deadline = deadline;
+        // A stop requested during an earlier search must not end this one
+        stopRequested = false;
+        aborted = false;
+        completedDepth = 0;
+        nodes = cutoffs = firstMoveCutoffs = researches = reductions = futilityPrunes = 0;
+        leafEvaluations = 0;
+        maxDepthReached = 0;
+        aspirationSearches = aspirationFailLows = aspirationFailHighs = 0;
+        for (int[] k : killers) k[0] = k[1] = -1;
+    }
+
+    /**
+     * Uses minimax algorithm with alpha-beta pruning to find the best possible move for AI.
+     * Search depth is limited to keep computations feasible on larger boards.
+     * The best move of the previous iteration is searched first and its score
+     * is used as the alpha bound for the remaining root moves, which are first searched
+     * with a null window and only searched again if they beat it. Root moves that are
+     * equivalent under a symmetry of the position are searched only once.
+     *
+     * @param maxDepth Maximum depth for minimax search.
+     * @return Coordinates [row, col] of the best move.
+     */
+    int[] minimaxMoveWithAlphaBeta(int maxDepth) {
+        return minimaxMoveWithAlphaBeta(maxDepth, -INFINITY, INFINITY);
+    }
+
+    /**
+     * Root search within a window. If the best score is at or below alpha, or at or above
+     * beta, it is only a bound and the move is the best found so far; the caller widens
+     * the window and searches again.
+     *
+     * @param maxDepth Maximum depth for minimax search.
+     * @param alpha    Lower end of the window.
+     * @param beta     Upper end of the window.
+     * @return Coordinates [row, col] of the best move, or null if the search was aborted.
+     */
+    int[] minimaxMoveWithAlphaBeta(int maxDepth, int alpha, int beta) {
+        int bestScore = Integer.MIN_VALUE;
+        int bestMove = -1;
+        int alphaOrig = alpha;
+        int[] moves = moveBuffers[0];
+        int count = state.removeSymmetricMoves(moves, state.getCandidateMoves(moves));
+        int t = state.canonicalTransform();
+        long key = state.symHash[t];
+        long entry = tt.probe(key);
+        scoreMoves(moves, count, 0, aiSide, entry != 0 ? fromCanonical(TranspositionTable.move(entry), t) : -1);
+
+        for (int i = 0; i < count; i++) {
+            int index = nextMove(0, i, count);
+            play(index, aiSide);
+            int score;
+            if (bestMove < 0) {
+                score = minimaxABLimited(false, 1, maxDepth, alpha, beta, index);
+            } else {
+                score = minimaxABLimited(false, 1, maxDepth, alpha, alpha + 1, index);
+                if (score > alpha && score < beta && !aborted) {
+                    researches++;
+                    score = minimaxABLimited(false, 1, maxDepth, alpha, beta, index);
+                }
+            }
+            undo(index, aiSide);
+            if (aborted) return null;
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = index;
+            }
+            alpha = Math.max(alpha, bestScore);
+            if (bestScore >= beta) break;
+        }
+        rootScore = bestScore;
+        if (bestMove < 0) return null;
+        int bound = bestScore <= alphaOrig ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        tt.store(key, maxDepth, bound, scoreToTable(bestScore, 0), state.symmetry[t][bestMove]);
+        return new int[]{state.row(bestMove), state.col(bestMove)};
+    }
+
+    /**
+     * Implementation of the minimax algorithm with alpha-beta pruning and a depth limit.
+     * Scores are from the AI's point of view; the search itself runs as {@link #negamax}.
+     *
+     * @param isMax   True if current level is maximizing (AI's turn), false for minimizing (player's turn).
+     * @param depth   Current depth in the search tree.
+     * @param maxDepth Maximum depth limit for search to control computation time.
+     * @param alpha   Alpha value for pruning the maximizer's best option.
+     * @param beta    Beta value for pruning the minimizer's best option.
+     * @param lastMove Bit index of the move that led to this position; only its lines can hold a new win.
+     * @return Heuristic score of the board at this recursion level.
+     */
+    int minimaxABLimited(boolean isMax, int depth, int maxDepth, int alpha, int beta, int lastMove) {
+        alpha = Math.max(alpha, -INFINITY);
+        beta = Math.min(beta, INFINITY);
+        if (isMax) return negamax(aiSide, depth, maxDepth, alpha, beta, lastMove);
+        return -negamax(playerSide, depth, maxDepth, -beta, -alpha, lastMove);
+    }
+
+    /**
+     * Principal variation search in negamax form: scores are from the point of view of the
+     * side to move. The first (best ordered) move is searched with the full window; every
+     * later move only has to be shown no better than it, which a null window around alpha
+     * does cheaply, and is searched again with the full window only when that test fails.
+     * Results are cached in the transposition table under the canonical key of the position,
+     * so positions reached by different move orders or equal up to a rotation or reflection
+     * are only searched once. Moves are ordered by {@link #scoreMoves}.
+     * <p>
+     * When {@link #selective} is set, quiet moves late in the order are first searched with
+     * reduced depth and only searched fully if they beat alpha (late move reductions), and
+     * near the horizon quiet moves are skipped when the static evaluation is so far below
+     * alpha that one move cannot make up the difference (futility pruning). A move is quiet
+     * unless it is the table move, a win, a block or a killer, or leaves a cell where its
+     * side wins next move; neither technique applies while the opponent threatens to win,
+     * so forced sequences are always searched at full depth.
+     *
+     * @param side     Side to move.
+     * @param depth    Current depth in the search tree.
+     * @param maxDepth Maximum depth limit for search to control computation time.
+     * @param alpha    Score the side to move is already guaranteed.
+     * @param beta     Score above which the opponent avoids this position.
+     * @param lastMove Bit index of the move that led to this position; only its lines can hold a new win.
+     * @return Score of the position for the side to move.
+     */
+    int negamax(int side, int depth, int maxDepth, int alpha, int beta, int lastMove) {
+        // The side that just moved is the opponent of the side to move
+        if (depth > maxDepthReached) maxDepthReached = depth;
+        if (state.winsAt(lastMove, 1 - side)) return depth - WIN_SCORE;
+        if (state.isFull()) return 0;
+        if (depth >= maxDepth) {
+            leafEvaluations++;
+            return evaluator.evaluate(side);
+        }
+        // Poll the clock and the stop request every 1024 nodes
+        if ((++nodes & 1023) == 0 && (stopRequested || System.nanoTime() > deadline)) aborted = true;
+        if (aborted) return 0;
+
+        int t = state.canonicalTransform();
+        long key = side == aiSide ? state.symHash[t] : state.symHash[t] ^ state.sideKey;
+        int remaining = maxDepth - depth;
+        int alphaOrig = alpha, betaOrig = beta;
+        int ttMove = -1;
+        long entry = tt.probe(key);
+        if (entry != 0) {
+            ttMove = fromCanonical(TranspositionTable.move(entry), t);
+            if (TranspositionTable.depth(entry) >= remaining) {
+                int score = scoreFromTable(TranspositionTable.score(entry), depth);
+                switch (TranspositionTable.bound(entry)) {
+                    case TranspositionTable.EXACT: return score;
+                    case TranspositionTable.LOWER: alpha = Math.max(alpha, score); break;
+                    case TranspositionTable.UPPER: beta = Math.min(beta, score); break;
+                }
+                if (beta <= alpha) return score;
+            }
+        }
+
+        int best = -INFINITY;
+        int bestMove = -1;
+
+        int[] moves = moveBuffers[depth];
+        int count = state.getCandidateMoves(moves);
+        scoreMoves(moves, count, depth, side, ttMove);
+
+        // Selective search only where the opponent has no win pending and no mate is at stake
+        boolean selectiveNode = selective && Math.abs(alpha) < WIN_SCORE - MAX_PLY
+                && !state.threatensWin(lastMove, 1 - side);
+        // Futility needs the horizon within reach before the board can fill up
+        int futilityScore = -INFINITY;
+        if (selectiveNode && remaining < FUTILITY_MARGIN.length && state.count + remaining < state.size * state.size) {
+            int margin = evaluator.evaluate(side) + FUTILITY_MARGIN[remaining];
+            if (margin <= alpha) futilityScore = margin;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = nextMove(depth, i, count);
+            boolean late = i >= LMR_MIN_MOVES && remaining >= LMR_MIN_REMAINING;
+            boolean quiet = selectiveNode && i > 0 && (late || futilityScore > -INFINITY)
+                    && orderScores[depth][i] < KILLER_SCORE;
+            play(index, side);
+            if (quiet && state.threatensWin(index, side)) quiet = false;
+            if (quiet && futilityScore > -INFINITY) {
+                // Cannot reach alpha; count the margin as its score so the bound stays sound
+                undo(index, side);
+                futilityPrunes++;
+                best = Math.max(best, futilityScore);
+                continue;
+            }
+            int reduction = quiet && late ? (i >= 2 * LMR_MIN_MOVES + 2 && remaining > LMR_MIN_REMAINING + 1 ? 2 : 1) : 0;
+            int score;
+            if (i == 0) {
+                score = -negamax(1 - side, depth + 1, maxDepth, -beta, -alpha, index);
+            } else {
+                score = -negamax(1 - side, depth + 1, maxDepth - reduction, -alpha - 1, -alpha, index);
+                if (reduction > 0) {
+                    reductions++;
+                    // A reduced move that beats alpha has to prove it at full depth
+                    if (score > alpha && !aborted)
+                        score = -negamax(1 - side, depth + 1, maxDepth, -alpha - 1, -alpha, index);
+                }
+                if (score > alpha && score < beta && !aborted) {
+                    researches++;
+                    score = -negamax(1 - side, depth + 1, maxDepth, -beta, -alpha, index);
+                }
+            }
+            undo(index, side);
+
+            if (score > best) {
+                best = score;
+                bestMove = index;
+            }
+            alpha = Math.max(alpha, best);
+
+            if (alpha >= beta) { // Prune the branch
+                recordCutoff(depth, side, index, remaining, i);
+                break;
+            }
+            // Below a root move of a parallel search, pick up better root scores found by
+            // other workers; they bound this position from above for the player to move
+            if (depth == 1 && sharedAlpha != null) {
+                int shared = -sharedAlpha.get();
+                if (shared < beta) {
+                    beta = shared;
+                    betaOrig = Math.min(betaOrig, shared);
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+        // An aborted subtree has no reliable score, so it must not reach the table
+        if (aborted) return 0;
+
+        int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                : best >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        tt.store(key, remaining, bound, scoreToTable(best, depth), state.symmetry[t][bestMove]);
+        return best;
+    }
+
+    /**
+     * Maps a move stored in the canonical frame back to the current position.
+     *
+     * @param move Bit index in the canonical frame, or -1.
+     * @param t    Symmetry mapping the current position to its canonical form.
+     * @return Bit index in the current position, or -1.
+     */
+    int fromCanonical(int move, int t) {
+        return move < 0 ? -1 : state.symmetry[BitBoard.INVERSE[t]][move];
+    }
+
+    /**
+     * Places a stone on the search board and updates the evaluator.
+     */
+    void play(int index, int side) {
+        state.set(index, side);
+        evaluator.make(index, side);
+    }
+
+    /**
+     * Removes a stone placed by {@link #play(int, int)}.
+     */
+    void undo(int index, int side) {
+        state.clear(index, side);
+        evaluator.unmake(index, side);
+    }
+
+    /**
+     * Assigns an ordering score to every move of a ply: the transposition-table move first,
+     * then immediate wins, then blocks of the opponent's immediate wins, then the ply's
+     * killer moves, then the rest by history score.
+     *
+     * @param moves  Bit indexes of the moves.
+     * @param count  Number of valid entries in {@code moves}.
+     * @param depth  Ply whose buffers are used.
+     * @param side   Side to move.
+     * @param ttMove Best move from the transposition table, or -1.
+     */
+    void scoreMoves(int[] moves, int count, int depth, int side, int ttMove) {
+        int[] scores = orderScores[depth];
+        int[] killer = killers[depth];
+        int[] sideHistory = history[side];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == ttMove) scores[i] = TT_MOVE_SCORE;
+            else if (state.winsAt(move, side)) scores[i] = WIN_MOVE_SCORE;
+            else if (state.winsAt(move, 1 - side)) scores[i] = BLOCK_SCORE;
+            else if (move == killer[0]) scores[i] = KILLER_SCORE + 1;
+            else if (move == killer[1]) scores[i] = KILLER_SCORE;
+            else if (helperId == 0) scores[i] = sideHistory[move];
+            else scores[i] = sideHistory[move] + ((move * 0x9E3779B1 ^ helperId * 0x85EBCA6B) >>> 26);
+        }
+    }
+
+    /**
+     * Selection step of a lazy sort: swaps the best remaining move into position {@code i}.
+     * Sorting only as far as the search gets is cheaper than a full sort when a cutoff comes early.
+     *
+     * @return Bit index of the move to search next.
+     */
+    int nextMove(int depth, int i, int count) {
+        int[] moves = moveBuffers[depth];
+        int[] scores = orderScores[depth];
+        int best = i;
+        for (int j = i + 1; j < count; j++)
+            if (scores[j] > scores[best]) best = j;
+        int move = moves[best];
+        moves[best] = moves[i];
+        moves[i] = move;
+        int score = scores[best];
+        scores[best] = scores[i];
+        scores[i] = score;
+        return move;
+    }
+
+    /**
+     * Updates killer moves, history and cutoff statistics after a beta cutoff.
+     *
+     * @param depth     Ply of the cutoff.
+     * @param side      Side whose move caused it.
+     * @param move      Bit index of the move.
+     * @param remaining Remaining depth below the node; deeper cutoffs weigh more.
+     * @param i         Position of the move in the searched order.
+     */
+    void recordCutoff(int depth, int side, int move, int remaining, int i) {
+        cutoffs++;
+        if (i == 0) firstMoveCutoffs++;
+        int[] killer = killers[depth];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        int[] sideHistory = history[side];
+        if ((sideHistory[move] += remaining * remaining) >= KILLER_SCORE) {
+            // Halve all entries so history stays below the killer band
+            for (int[] h : history)
+                for (int j = 0; j < h.length; j++) h[j] >>= 1;
+        }
+    }
+
+    /**
+     * @return Fraction of beta cutoffs caused by the first move searched, in the range [0, 1].
+     *         Close to 1 means the move ordering lets alpha-beta prune almost optimally.
+     */
+    double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * Converts a win/loss score from distance-to-root to distance-to-node form,
+     * so a table entry stays valid when the position is reached at another depth.
+     */
+    static int scoreToTable(int score, int depth) {
+        if (score > WIN_SCORE - MAX_PLY) return score + depth;
+        if (score < MAX_PLY - WIN_SCORE) return score - depth;
+        return score;
+    }
+
+    /**
+     * Inverse of {@link #scoreToTable(int, int)}.
+     */
+    static int scoreFromTable(int score, int depth) {
+        if (score > WIN_SCORE - MAX_PLY) return score - depth;
+        if (score < MAX_PLY - WIN_SCORE) return score + depth;
+        return score;
+    }
+}
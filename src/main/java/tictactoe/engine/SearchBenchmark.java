@@ -0,0 +1,148 @@
+package tictactoe.engine;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line benchmark for the AI search on fixed mid-game positions.
+ * Runs the sequential search at a fixed depth and prints how often the first move caused
+ * the cutoff, the transposition table hit rate and how often its aspiration windows
+ * failed low or high, then runs the parallel root search and the Lazy SMP search at a fixed depth with 1, 2, 4...
+ * threads up to the number of available cores and prints time, node count, nodes per
+ * second and the speedup over one thread, so the mode and pool size can be tuned.
+ * The root-parallel and tree-parallel Monte Carlo searches are then run for a fixed time
+ * on the same positions and compared by playouts per second.
+ * <p>
+ * Usage: {@code java tictactoe.engine.SearchBenchmark [maxThreads]}
+ */
+public class SearchBenchmark {
+    // Positions as rows of 'X', 'O' and '.', with the depth each is searched to
+    static final Object[][] POSITIONS = {
+            {4, 8, new String[]{
+                    ".....",
+                    ".....",
+                    "..XO.",
+                    ".....",
+                    "....."}},
+            {5, 5, new String[]{
+                    ".........",
+                    ".........",
+                    ".........",
+                    "...XO....",
+                    "....X....",
+                    "...O.....",
+                    ".........",
+                    ".........",
+                    "........."}},
+    };
+
+    // Parallel search modes compared by the benchmark
+    static final String[] MODES = {Engine.SEARCH_ROOT_SPLIT, Engine.SEARCH_LAZY_SMP};
+    // Parallel Monte Carlo modes, and the time each of their runs is given
+    static final String[] MCTS_MODES = {ParallelMcts.ROOT_PARALLEL, ParallelMcts.TREE_PARALLEL};
+    static final int MCTS_BUDGET_MS = 1000;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (Object[] position : POSITIONS) {
+            int winLength = (int) position[0], depth = (int) position[1];
+            BitBoard board = BitBoard.parse(winLength, (String[]) position[2]);
+            // Warm up the JIT before the measured run
+            runSequential(board, depth);
+            Search sequential = runSequential(board, depth);
+            System.out.printf("%dx%d, depth %d, sequential: %d nodes, %.0f%% first-move cutoffs, %.0f%% TT hits, "
+                            + "aspiration %d iterations, %.0f%% failed low, %.0f%% failed high%n%n",
+                    board.size, board.size, depth, sequential.totalNodes(), 100 * sequential.firstMoveCutoffRate(),
+                    100 * sequential.tt.hitRate(), sequential.aspirationSearches,
+                    percent(sequential.aspirationFailLows, sequential.aspirationSearches),
+                    percent(sequential.aspirationFailHighs, sequential.aspirationSearches));
+            for (String mode : MODES) {
+                System.out.printf("%dx%d, depth %d, %s%n", board.size, board.size, depth, mode);
+                System.out.printf("%8s %10s %12s %12s %8s%n", "threads", "ms", "nodes", "nodes/s", "speedup");
+                // Warm up the JIT so the single-thread baseline is not inflated
+                run(mode, board, depth, 1);
+                double baseMs = 0;
+                for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                    long[] result = run(mode, board, depth, threads);
+                    double ms = result[0] / 1e6;
+                    if (threads == 1) baseMs = ms;
+                    System.out.printf("%8d %10.1f %12d %12.0f %8.2f%n",
+                            threads, ms, result[1], result[1] / ms * 1000, baseMs / ms);
+                }
+                System.out.println();
+            }
+            for (String mode : MCTS_MODES) {
+                System.out.printf("%dx%d, MCTS %d ms, %s%n", board.size, board.size, MCTS_BUDGET_MS, mode);
+                System.out.printf("%8s %12s %12s %8s%n", "threads", "playouts", "playouts/s", "scaling");
+                runMcts(mode, board, 1);
+                double base = 0;
+                for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                    ParallelMcts search = runMcts(mode, board, threads);
+                    double rate = search.playoutsPerSecond();
+                    if (threads == 1) base = rate;
+                    System.out.printf("%8d %12d %12.0f %8.2f%n", threads, search.playouts, rate, rate / base);
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    /**
+     * Searches a copy of the board to a fixed depth with a fresh transposition table.
+     *
+     * @return Elapsed nanoseconds and node count.
+     */
+    static long[] run(String mode, BitBoard board, int depth, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        TranspositionTable tt = new TranspositionTable(20);
+        // Effectively unlimited time, so every run searches to the same depth
+        long budgetMs = Long.MAX_VALUE / 2_000_000L;
+        long start = System.nanoTime(), nodes;
+        if (mode.equals(Engine.SEARCH_ROOT_SPLIT)) {
+            ParallelRootSearch search = new ParallelRootSearch(board.copy(), sideToMove(board), tt, pool);
+            search.iterativeDeepening(depth, budgetMs);
+            nodes = search.nodes();
+        } else {
+            LazySmpSearch search = new LazySmpSearch(board.copy(), sideToMove(board), tt, threads, pool);
+            search.iterativeDeepening(depth, budgetMs);
+            nodes = search.nodes();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return new long[]{elapsed, nodes};
+    }
+
+    /**
+     * Searches a copy of the board to a fixed depth on the calling thread with a fresh transposition table.
+     *
+     * @return The finished search, holding its node and aspiration counters.
+     */
+    static Search runSequential(BitBoard board, int depth) {
+        Search search = new Search(board.copy(), sideToMove(board), new TranspositionTable(20));
+        search.iterativeDeepening(depth, Long.MAX_VALUE / 2_000_000L);
+        return search;
+    }
+
+    static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    /**
+     * Runs a parallel Monte Carlo search of a copy of the board for {@link #MCTS_BUDGET_MS}.
+     *
+     * @return The finished search, holding its playout count and rate.
+     */
+    static ParallelMcts runMcts(String mode, BitBoard board, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ParallelMcts search = new ParallelMcts(mode, threads, 1 << 20, pool);
+        search.search(board.copy(), sideToMove(board), MCTS_BUDGET_MS, Long.MAX_VALUE);
+        pool.shutdown();
+        return search;
+    }
+
+    /**
+     * @return Side to move, assuming X moved first.
+     */
+    static int sideToMove(BitBoard board) {
+        return board.count % 2 == 0 ? BitBoard.X : BitBoard.O;
+    }
+}
@@ -0,0 +1,37 @@
+package tictactoe.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one completed iteration of iterative deepening.
+ */
+@Name("tictactoe.SearchIteration")
+@Label("Search Iteration")
+@Category({"Tic Tac Toe", "Engine"})
+@Description("Iterative deepening iteration completed")
+class SearchIterationEvent extends jdk.jfr.Event {
+    @Label("Board Size")
+    int boardSize;
+
+    @Label("Difficulty")
+    @Description("Engine difficulty the search plays at, or null outside the engine")
+    String difficulty;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    @Description("Nodes searched so far, including leaf evaluations, by this search thread or all root split workers")
+    long nodes;
+
+    @Label("Score")
+    @Description("Root score from the point of view of the side to move")
+    int score;
+
+    @Label("Helper")
+    @Description("Lazy SMP helper number, 0 for the main search thread")
+    int helper;
+}
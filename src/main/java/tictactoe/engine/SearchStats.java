@@ -0,0 +1,67 @@
+package tictactoe.engine;
+
+/**
+ * Work done by the engine to choose one move. Immutable.
+ * Nodes count positions searched, including leaf evaluations and the threat search;
+ * for Monte Carlo they count playouts. Moves answered without searching (Easy, Medium,
+ * perfect play on 3x3) report zero work.
+ */
+public final class SearchStats {
+    // Reported before the engine has chosen any move
+    static final SearchStats NONE = new SearchStats(0, 0, 0, 0, 0, 0, 0, 0);
+
+    // Positions searched
+    public final long nodes;
+    // Positions scored by the static evaluation at the depth limit
+    public final long leafEvaluations;
+    // Beta cutoffs, and how many of them came from the first move searched
+    public final long cutoffs, firstMoveCutoffs;
+    // Transposition table lookups, and how many found their position
+    public final long ttProbes, ttHits;
+    // Deepest ply the search reached
+    public final int maxDepth;
+    // Wall-clock time of the whole move choice in nanoseconds
+    public final long elapsedNanos;
+
+    SearchStats(long nodes, long leafEvaluations, long cutoffs, long firstMoveCutoffs, long ttProbes, long ttHits,
+                int maxDepth, long elapsedNanos) {
+        this.nodes = nodes;
+        this.leafEvaluations = leafEvaluations;
+        this.cutoffs = cutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.ttProbes = ttProbes;
+        this.ttHits = ttHits;
+        this.maxDepth = maxDepth;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Nodes searched per second of elapsed time.
+     */
+    public double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return Fraction of cutoffs caused by the first move searched, in the range [0, 1].
+     *         Close to 1 means the move ordering lets alpha-beta prune almost optimally.
+     */
+    public double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * @return Fraction of transposition table lookups that found their position, in the range [0, 1].
+     */
+    public double ttHitRate() {
+        return ttProbes == 0 ? 0 : (double) ttHits / ttProbes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d nodes, %,d leaf evals, %,d cutoffs (%.0f%% first move), %,d TT hits (%.0f%%), "
+                        + "depth %d, %.0f ms, %,.0f nodes/s",
+                nodes, leafEvaluations, cutoffs, 100 * firstMoveCutoffRate(), ttHits, 100 * ttHitRate(),
+                maxDepth, elapsedNanos / 1e6, nodesPerSecond());
+    }
+}
@@ -0,0 +1,113 @@
+package tictactoe.engine;
+
+/**
+ * Threat-space search for forced wins by continuous threats (VCF).
+ * Only attacking moves that leave a cell where the attacker would win next move are
+ * tried, and the defender's only reply is to take that cell, so the branching factor is
+ * tiny and sequences of 10 to 20 plies are searched in milliseconds. A line counts as a
+ * threat when it holds {@code winLength - 1} attacker stones and one empty cell; the
+ * attacker wins when a move leaves two such cells or the defender cannot block.
+ * Quieter threats that leave the defender several replies (VCT) are not searched; the
+ * general alpha-beta search covers those.
+ * Each node tests every candidate cell for a win, so nodes are slow on large boards; the
+ * search also ends at a deadline or when {@link #stop()} is called, and then reports no win.
+ * A single instance is not thread-safe, except for {@link #stop()}.
+ */
+class ThreatSearch {
+    // Default number of attacking moves in a sequence, i.e. up to 20 plies
+    static final int MAX_MOVES = 10;
+    // Node limit per call, so a position full of threats cannot stall the move
+    static final int MAX_NODES = 200_000;
+
+    // Nodes visited by the last call
+    long nodes;
+    // System.nanoTime() at which the running call must give up
+    private long deadline;
+    // Set by stop(); polled with the deadline
+    private volatile boolean stopRequested;
+    // Set once the call has to give up; every level then reports no win
+    private boolean aborted;
+    // Candidate moves per ply, and winning cells found around a move
+    private int[][] moveBuffers;
+    private int[] threatCells;
+    // Board being searched
+    private BitBoard board;
+
+    /**
+     * Looks for a sequence of continuous threats that wins by force for the side to move.
+     *
+     * @param state    Position to search; restored before returning.
+     * @param attacker Side to move, looking for the win.
+     * @param maxMoves Maximum number of attacking moves in the sequence.
+     * @param deadline System.nanoTime() at which to give up.
+     * @return Bit index of the first move of a forced win, or -1 if none was found in time.
+     */
+    int findWin(BitBoard state, int attacker, int maxMoves, long deadline) {
+        int cells = state.size * state.size;
+        if (moveBuffers == null || moveBuffers.length < maxMoves + 1 || moveBuffers[0].length < cells) {
+            moveBuffers = new int[maxMoves + 1][cells];
+            threatCells = new int[8 * state.winLength];
+        }
+        board = state;
+        nodes = 0;
+        this.deadline = deadline;
+        stopRequested = false;
+        aborted = false;
+        return attack(attacker, maxMoves);
+    }
+
+    /**
+     * Makes a running {@link #findWin} give up as soon as possible. Safe to call from any thread.
+     */
+    void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Searches the attacker's continuous threats from the current position, attacker to move.
+     *
+     * @return The attacking move that wins by force, or -1.
+     */
+    private int attack(int attacker, int movesLeft) {
+        int defender = 1 - attacker;
+        int[] moves = moveBuffers[movesLeft];
+        int count = board.getCandidateMoves(moves);
+
+        // An immediate win ends the sequence; otherwise note the defender's own threats
+        int defenderThreat = -1, defenderThreats = 0;
+        for (int i = 0; i < count; i++) {
+            if (board.winsAt(moves[i], attacker)) return moves[i];
+            if (board.winsAt(moves[i], defender)) {
+                defenderThreat = moves[i];
+                defenderThreats++;
+            }
+        }
+        if (movesLeft == 0 || defenderThreats > 1 || ++nodes > MAX_NODES) return -1;
+        // Nodes are slow, so poll the clock and the stop request every 16 of them
+        if ((nodes & 15) == 0 && (stopRequested || System.nanoTime() > deadline)) aborted = true;
+        if (aborted) return -1;
+        // The attacker must block the defender's threat, and only wins if the block is a threat too
+        if (defenderThreats == 1) {
+            moves[0] = defenderThreat;
+            count = 1;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            board.set(move, attacker);
+            int threats = board.threatsThrough(move, attacker, threatCells);
+            boolean win = threats > 1;
+            if (threats == 1) {
+                // The only defence is to take the winning cell
+                int block = threatCells[0];
+                board.set(block, defender);
+                win = attack(attacker, movesLeft - 1) >= 0;
+                board.clear(block, defender);
+            }
+            board.clear(move, attacker);
+            if (win) return move;
+            if (nodes > MAX_NODES || aborted) break;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,346 @@
+package tictactoe.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Headless self-play tournament between engine configurations, for tuning the difficulty
+ * levels. Every pair of configurations plays the same number of games, alternating who
+ * moves first, each game starting with a few random moves so deterministic configurations
+ * do not replay one game. Prints wins, draws and losses per pairing and per configuration,
+ * Elo estimates and games per second.
+ * <p>
+ * Each game runs on a virtual thread and hands every move to a fixed pool of platform
+ * threads. Only as many games are in progress as the pool has threads, which keeps every
+ * thread busy while bounding the memory held by the games' engines; finished games hand
+ * their engines on to later ones. Time-budgeted configurations are sensitive to how loaded
+ * the machine is; give them a pool no larger than the number of cores.
+ * <p>
+ * Usage: {@code java tictactoe.engine.Tournament [-size n] [-games n] [-threads n] [-opening n] [-seed n] config...}
+ * <br>
+ * A configuration is a difficulty followed by optional comma-separated settings, e.g.
+ * {@code Hard,depth=4} or {@code Impossible,time=200,eval=line4}: {@code depth} caps the
+ * search depth, {@code time} is the budget per move in milliseconds and {@code eval} picks
+ * the leaf evaluation, {@code line2}, {@code line4} or {@code line8} (the default) for
+ * the factor each extra stone in a line multiplies its value by.
+ */
+public class Tournament {
+    // Elo scale: a rating difference of this much means ten-to-one odds
+    static final double ELO_SCALE = 400;
+
+    /**
+     * An engine configuration taking part in the tournament. Immutable.
+     */
+    static final class Player {
+        // Configuration as given on the command line
+        final String name;
+        final String difficulty;
+        // Depth cap (0 for the difficulty's own) and time budget per move
+        final int depth, timeMs;
+        // Leaf evaluation of the searches
+        final Supplier<Evaluator> evaluator;
+
+        Player(String name, String difficulty, int depth, int timeMs, Supplier<Evaluator> evaluator) {
+            this.name = name;
+            this.difficulty = difficulty;
+            this.depth = depth;
+            this.timeMs = timeMs;
+            this.evaluator = evaluator;
+        }
+
+        /**
+         * Creates an engine playing this configuration. Impossible and Monte Carlo run on
+         * one thread, so a move never uses more than its pool thread.
+         */
+        Engine engine(Rules rules) {
+            Engine engine = new Engine(rules);
+            engine.setMaxDepth(depth);
+            engine.setTimeBudgetMs(timeMs);
+            engine.setEvaluator(evaluator);
+            engine.setParallelSearch(Engine.SEARCH_ROOT_SPLIT, 1);
+            engine.setMonteCarlo(Engine.MCTS_TREE_PARALLEL, 1);
+            return engine;
+        }
+
+        /**
+         * Parses a configuration such as {@code Hard,depth=4,time=200,eval=line4}.
+         */
+        static Player parse(String spec) {
+            String[] parts = spec.split(",");
+            String difficulty = null;
+            for (String d : Engine.DIFFICULTIES)
+                if (d.replace(" ", "").equalsIgnoreCase(parts[0].replace(" ", ""))) difficulty = d;
+            if (difficulty == null) throw new IllegalArgumentException("Unknown difficulty: " + parts[0]);
+            int depth = 0, timeMs = 1000;
+            Supplier<Evaluator> evaluator = LineEvaluator::new;
+            for (int i = 1; i < parts.length; i++) {
+                String[] option = parts[i].split("=", 2);
+                if (option.length != 2) throw new IllegalArgumentException("Expected key=value: " + parts[i]);
+                switch (option[0]) {
+                    case "depth": depth = Integer.parseInt(option[1]); break;
+                    case "time": timeMs = Integer.parseInt(option[1]); break;
+                    case "eval": evaluator = evaluator(option[1]); break;
+                    default: throw new IllegalArgumentException("Unknown setting: " + option[0]);
+                }
+            }
+            return new Player(spec, difficulty, depth, timeMs, evaluator);
+        }
+
+        private static Supplier<Evaluator> evaluator(String name) {
+            switch (name) {
+                case "line2": return () -> new LineEvaluator(1);
+                case "line4": return () -> new LineEvaluator(2);
+                case "line8": return LineEvaluator::new;
+                default: throw new IllegalArgumentException("Unknown evaluator: " + name);
+            }
+        }
+    }
+
+    // Rules every game is played under
+    final Rules rules;
+    // Configurations taking part
+    final List<Player> players;
+    // Games per pairing, random moves opening each game, and seed of those moves
+    final int gamesPerPair, openingMoves;
+    final long seed;
+    // Results indexed by [player][opponent]: wins and draws of the player against the opponent
+    final int[][] wins, draws;
+    // Engines of each configuration not used by a game in progress, kept so later games
+    // reuse their tables instead of allocating new ones
+    final Map<Player, Queue<Engine>> idleEngines = new HashMap<>();
+
+    Tournament(Rules rules, List<Player> players, int gamesPerPair, int openingMoves, long seed) {
+        this.rules = rules;
+        this.players = players;
+        this.gamesPerPair = gamesPerPair;
+        this.openingMoves = openingMoves;
+        this.seed = seed;
+        this.wins = new int[players.size()][players.size()];
+        this.draws = new int[players.size()][players.size()];
+        for (Player player : players) idleEngines.put(player, new ConcurrentLinkedQueue<>());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = 5, games = 100, threads = Runtime.getRuntime().availableProcessors(), opening = 2;
+        long seed = 1;
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size": size = Integer.parseInt(args[++i]); break;
+                case "-games": games = Integer.parseInt(args[++i]); break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-opening": opening = Integer.parseInt(args[++i]); break;
+                case "-seed": seed = Long.parseLong(args[++i]); break;
+                default: players.add(Player.parse(args[i]));
+            }
+        }
+        if (players.isEmpty()) {
+            players.add(Player.parse("Medium"));
+            players.add(Player.parse("Hard,time=100"));
+            players.add(Player.parse("Impossible,time=100"));
+        }
+        if (players.size() < 2) throw new IllegalArgumentException("At least two configurations are needed");
+
+        Tournament tournament = new Tournament(Rules.forSize(size), players, games, opening, seed);
+        System.out.printf("%s, %d games per pairing, %d search threads%n%n", tournament.rules, games, threads);
+        long start = System.nanoTime();
+        int played = tournament.run(threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        tournament.report();
+        System.out.printf("%n%d games in %.1f s, %.2f games/s%n", played, seconds, played / seconds);
+    }
+
+    /**
+     * Plays every game of the tournament.
+     *
+     * @param threads Platform threads running the searches.
+     * @return Number of games played.
+     */
+    int run(int threads) throws InterruptedException {
+        ExecutorService searches = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Tournament search");
+            t.setDaemon(true);
+            return t;
+        });
+        // Games hold two engines with their tables, up to about 37 MB each; one game per
+        // search thread keeps every thread busy, since a game searches one move at a time,
+        // and bounds how many engines the idle pools ever create
+        Semaphore inFlight = new Semaphore(threads);
+        List<Future<?>> running = new ArrayList<>();
+        int game = 0;
+        try (ExecutorService games = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int a = 0; a < players.size(); a++) {
+                for (int b = a + 1; b < players.size(); b++) {
+                    for (int g = 0; g < gamesPerPair; g++) {
+                        // Alternate who moves first
+                        int x = g % 2 == 0 ? a : b, o = x == a ? b : a;
+                        long gameSeed = seed * 1_000_003L + game++;
+                        running.add(games.submit(() -> {
+                            inFlight.acquire();
+                            try {
+                                record(x, o, play(players.get(x), players.get(o), gameSeed, searches));
+                            } finally {
+                                inFlight.release();
+                            }
+                            return null;
+                        }));
+                    }
+                }
+            }
+            for (Future<?> f : running) f.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Game failed", e.getCause());
+        } finally {
+            searches.shutdownNow();
+        }
+        return game;
+    }
+
+    /**
+     * Plays one game on the calling (virtual) thread, running each move on the search pool.
+     * The two engines are taken from the idle pools for the whole game and returned after it.
+     *
+     * @return 'X' or 'O' for the winner, or ' ' for a draw.
+     */
+    char play(Player xPlayer, Player oPlayer, long gameSeed, ExecutorService searches)
+            throws InterruptedException, ExecutionException {
+        GameState state = new GameState(rules);
+        Engine x = takeEngine(xPlayer), o = takeEngine(oPlayer);
+        try {
+            Random random = new Random(gameSeed);
+            char toMove = 'X';
+            for (int moves = 0; ; moves++) {
+                Move move;
+                if (moves < openingMoves) {
+                    do {
+                        move = new Move(random.nextInt(rules.size), random.nextInt(rules.size));
+                    } while (!state.isEmpty(move.row, move.col));
+                } else {
+                    Engine engine = toMove == 'X' ? x : o;
+                    String difficulty = toMove == 'X' ? xPlayer.difficulty : oPlayer.difficulty;
+                    char side = toMove;
+                    move = searches.submit(() -> engine.chooseMove(state, side, difficulty)).get();
+                }
+                state.play(move, toMove);
+                if (state.isWinningMove(move, toMove)) return toMove;
+                if (state.isFull()) return ' ';
+                toMove = toMove == 'X' ? 'O' : 'X';
+            }
+        } finally {
+            idleEngines.get(xPlayer).add(x);
+            idleEngines.get(oPlayer).add(o);
+        }
+    }
+
+    /**
+     * Takes an idle engine of the configuration and starts a new game on it, or creates
+     * an engine if every one of them is in use.
+     */
+    private Engine takeEngine(Player player) {
+        Engine engine = idleEngines.get(player).poll();
+        if (engine == null) return player.engine(rules);
+        engine.newGame();
+        return engine;
+    }
+
+    private synchronized void record(int x, int o, char winner) {
+        if (winner == 'X') wins[x][o]++;
+        else if (winner == 'O') wins[o][x]++;
+        else {
+            draws[x][o]++;
+            draws[o][x]++;
+        }
+    }
+
+    /**
+     * Prints the results of every pairing and the standings with Elo estimates.
+     */
+    void report() {
+        int n = players.size();
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                int games = games(a, b);
+                double score = score(a, b) / games;
+                System.out.printf("%s vs %s: +%d =%d -%d, score %.1f%%, Elo %+.0f%n",
+                        players.get(a).name, players.get(b).name, wins[a][b], draws[a][b], wins[b][a],
+                        100 * score, eloDifference(score));
+            }
+        }
+        double[] ratings = ratings();
+        System.out.printf("%n%-32s %6s %6s %6s %7s %6s%n", "configuration", "wins", "draws", "losses", "score", "Elo");
+        for (int a = 0; a < n; a++) {
+            int w = 0, d = 0, l = 0;
+            for (int b = 0; b < n; b++) {
+                w += wins[a][b];
+                d += draws[a][b];
+                l += wins[b][a];
+            }
+            System.out.printf("%-32s %6d %6d %6d %6.1f%% %+6.0f%n", players.get(a).name, w, d, l,
+                    100 * (w + 0.5 * d) / Math.max(1, w + d + l), ratings[a]);
+        }
+    }
+
+    private int games(int a, int b) {
+        return wins[a][b] + wins[b][a] + draws[a][b];
+    }
+
+    private double score(int a, int b) {
+        return wins[a][b] + 0.5 * draws[a][b];
+    }
+
+    /**
+     * @param score Fraction of the points scored against one opponent.
+     * @return Rating difference to the opponent that predicts the score, capped at ±800 for a clean sweep.
+     */
+    static double eloDifference(double score) {
+        if (score <= 0) return -800;
+        if (score >= 1) return 800;
+        // Adding 0 turns -0 at an even score into 0
+        return Math.max(-800, Math.min(800, -ELO_SCALE * Math.log10(1 / score - 1))) + 0.0;
+    }
+
+    /**
+     * Fits ratings to all results at once, so configurations that never met directly are
+     * compared through common opponents. Maximises the likelihood of the Elo model by
+     * gradient ascent, with one extra draw per pairing so clean sweeps stay finite.
+     *
+     * @return Ratings per configuration, averaging 0.
+     */
+    double[] ratings() {
+        int n = players.size();
+        double[] ratings = new double[n];
+        for (int iteration = 0; iteration < 10_000; iteration++) {
+            double change = 0;
+            for (int a = 0; a < n; a++) {
+                double actual = 0, expected = 0, games = 0;
+                for (int b = 0; b < n; b++) {
+                    if (b == a) continue;
+                    double pairGames = games(a, b) + 1;
+                    actual += score(a, b) + 0.5;
+                    expected += pairGames / (1 + Math.pow(10, (ratings[b] - ratings[a]) / ELO_SCALE));
+                    games += pairGames;
+                }
+                // Step scaled to the games played; the slope of the expected score is at most 1/4 per game
+                double step = 4 * ELO_SCALE / Math.log(10) * (actual - expected) / games / 2;
+                ratings[a] += step;
+                change = Math.max(change, Math.abs(step));
+            }
+            if (change < 0.01) break;
+        }
+        double mean = 0;
+        for (double r : ratings) mean += r / n;
+        for (int a = 0; a < n; a++) ratings[a] -= mean;
+        return ratings;
+    }
+}
@@ -0,0 +1,148 @@
+package tictactoe.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for the alpha-beta search.
+ * Each entry stores the searched depth, bound type, score and best move packed into a
+ * single {@code long}, so the table is two flat arrays and probing never allocates.
+ * Entries are grouped in buckets of two: the first slot keeps the deepest (or most recent
+ * search's) result, the second slot is always replaced.
+ * <p>
+ * The table can be shared by several search threads without locks: a slot stores the key
+ * XOR-ed with the entry, so an entry torn by a concurrent write no longer matches its key
+ * and reads as a miss. The counters are plain fields and only approximate when shared.
+ */
+class TranspositionTable {
+    // Bound types; zero is reserved to mark an empty slot
+    static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    // Zobrist keys XOR-ed with their entries, and packed entries, two slots per bucket
+    private final long[] keys;
+    private final long[] data;
+    // Mask selecting the first slot of a bucket
+    private final int mask;
+    // Search generation, used to age out entries from earlier moves
+    private int generation;
+
+    // Hit-rate counters
+    long probes, hits, stores, overwrites;
+
+    /**
+     * Creates a table with {@code 2^sizeBits} entries.
+     *
+     * @param sizeBits Base-two logarithm of the number of entries.
+     */
+    TranspositionTable(int sizeBits) {
+        TranspositionTableEvent event = new TranspositionTableEvent();
+        event.begin();
+        keys = new long[1 << sizeBits];
+        data = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 2;
+        commit(event, TranspositionTableEvent.ALLOCATE);
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key Zobrist key of the position.
+     * @return Packed entry, or 0 if the position is not stored.
+     */
+    long probe(long key) {
+        probes++;
+        int i = (int) key & mask;
+        for (int slot = i; slot <= i + 1; slot++) {
+            // Read each word once; a torn pair fails the XOR check
+            long entry = data[slot];
+            if (entry != 0 && (keys[slot] ^ entry) == key) {
+                hits++;
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result. The depth-preferred slot is replaced if it holds the same
+     * position, an entry from an earlier search, or a shallower result; otherwise the
+     * entry goes to the always-replace slot.
+     *
+     * @param key   Zobrist key of the position.
+     * @param depth Remaining search depth the score was computed with.
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     * @param score Score of the position.
+     * @param move  Bit index of the best move, or -1 if none.
+     */
+    void store(long key, int depth, int bound, int score, int move) {
+        stores++;
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) Math.min(depth, 255) << 32
+                | (long) bound << 40
+                | (long) ((move + 1) & 0xFFFF) << 42
+                | (long) generation << 58;
+        int i = (int) key & mask;
+        long old = data[i];
+        if (old != 0 && (keys[i] ^ old) != key && generation(old) == generation && depth(old) > depth) i++;
+        old = data[i];
+        if (old != 0 && (keys[i] ^ old) != key) overwrites++;
+        keys[i] = key ^ entry;
+        data[i] = entry;
+    }
+
+    /**
+     * Starts a new search generation so entries from previous moves are replaced first.
+     */
+    void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    /**
+     * Empties the table and resets the counters, e.g. when a new game starts.
+     */
+    void clear() {
+        TranspositionTableEvent event = new TranspositionTableEvent();
+        event.begin();
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        probes = hits = stores = overwrites = 0;
+        commit(event, TranspositionTableEvent.CLEAR);
+    }
+
+    /**
+     * Records an allocation or clearing of the table with Flight Recorder, if enabled.
+     */
+    private void commit(TranspositionTableEvent event, String action) {
+        if (!event.shouldCommit()) return;
+        event.action = action;
+        event.entries = keys.length;
+        event.size = 16L * keys.length;
+        event.commit();
+    }
+
+    /**
+     * @return Fraction of probes that found their position, in the range [0, 1].
+     */
+    double hitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    static int move(long entry) {
+        return ((int) (entry >>> 42) & 0xFFFF) - 1;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 58) & 0x3F;
+    }
+}
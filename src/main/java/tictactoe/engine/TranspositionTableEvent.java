@@ -0,0 +1,30 @@
+package tictactoe.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the allocation or clearing of a transposition table.
+ * Tables have a fixed size, so these are the points where their memory is (re)claimed.
+ */
+@Name("tictactoe.TranspositionTable")
+@Label("Transposition Table")
+@Category({"Tic Tac Toe", "Engine"})
+@Description("Transposition table allocated or cleared")
+class TranspositionTableEvent extends jdk.jfr.Event {
+    // Values of the action field
+    static final String ALLOCATE = "allocate", CLEAR = "clear";
+
+    @Label("Action")
+    String action;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+}
@@ -0,0 +1,74 @@
+package tictactoe.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the bitboard win detection against a plain scan of the board.
+ */
+class BitBoardTest {
+    // Line steps as row and column deltas: horizontal, vertical, diagonal, anti-diagonal
+    private static final int[][] STEPS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    @Test
+    void checkWinMatchesScanOnRandomBoards() {
+        Random random = new Random(1);
+        // Sizes around 62, where line shifts reach a whole 64-bit word
+        int[] sizes = {3, 4, 5, 9, 15, 31, 60, 61, 62, 63, 64, 70};
+        for (int size : sizes) {
+            for (int trial = 0; trial < 40; trial++) {
+                int winLength = 2 + random.nextInt(Math.min(size, 6) - 1);
+                BitBoard board = new BitBoard(size, winLength);
+                boolean[][][] marks = new boolean[2][size][size];
+                int stones = random.nextInt(size * size / 2 + 1);
+                for (int k = 0; k < stones; k++) {
+                    int r = random.nextInt(size), c = random.nextInt(size);
+                    if (!board.isEmpty(board.index(r, c))) continue;
+                    int side = random.nextInt(2);
+                    board.set(board.index(r, c), side);
+                    marks[side][r][c] = true;
+                }
+                for (int side = 0; side < 2; side++)
+                    assertEquals(scanWin(marks[side], winLength), board.checkWin(side),
+                            size + "x" + size + ", " + winLength + " in a row, side " + side);
+            }
+        }
+    }
+
+    @Test
+    void checkWinFindsLinesInEveryDirectionOnLargeBoards() {
+        for (int size : new int[]{62, 63, 64, 65}) {
+            for (int[] step : STEPS) {
+                BitBoard board = new BitBoard(size, 5);
+                int r = size / 2, c = step[1] < 0 ? size - 1 : 0;
+                for (int k = 0; k < 5; k++) board.set(board.index(r + step[0] * k, c + step[1] * k), BitBoard.X);
+                assertEquals(true, board.checkWin(BitBoard.X), size + "x" + size + ", step " + step[0] + "," + step[1]);
+                assertEquals(false, board.checkWin(BitBoard.O));
+            }
+        }
+    }
+
+    /**
+     * Reference win check walking every cell and direction.
+     */
+    private static boolean scanWin(boolean[][] marks, int winLength) {
+        int n = marks.length;
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                for (int[] step : STEPS) {
+                    int k = 0;
+                    while (k < winLength) {
+                        int rr = r + step[0] * k, cc = c + step[1] * k;
+                        if (rr < 0 || rr >= n || cc < 0 || cc >= n || !marks[rr][cc]) break;
+                        k++;
+                    }
+                    if (k == winLength) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
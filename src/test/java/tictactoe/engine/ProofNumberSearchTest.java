@@ -0,0 +1,135 @@
+package tictactoe.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the df-pn solver against plain minimax on small boards.
+ */
+class ProofNumberSearchTest {
+
+    @Test
+    void solveMatchesMinimaxOnRandom3x3Positions() {
+        checkRandomPositions(3, 3, 0, 7, 200);
+    }
+
+    @Test
+    void solveMatchesMinimaxOnRandom4x4Positions() {
+        checkRandomPositions(4, 3, 2, 9, 100);
+        checkRandomPositions(4, 4, 4, 10, 60);
+    }
+
+    @Test
+    void solveReportsLossWhenOpponentHasAlreadyWon() {
+        BitBoard board = BitBoard.parse(3, "XXX", "OO.", "...");
+        ProofNumberSearch solver = new ProofNumberSearch(12);
+        assertEquals(ProofNumberSearch.LOSS, solver.solve(board, BitBoard.O));
+        assertEquals(ProofNumberSearch.WIN, solver.solve(board, BitBoard.X));
+    }
+
+    @Test
+    void openingBookRoundTrips() throws IOException {
+        int[] results = new int[16];
+        for (int i = 0; i < results.length; i++) results[i] = i % 5 == 0 ? ProofNumberSearch.WIN : ProofNumberSearch.DRAW;
+        // Make the results symmetric, as solved results are
+        BitBoard board = new BitBoard(4, 3);
+        for (int row = 0; row < 4; row++)
+            for (int col = 0; col < 4; col++)
+                for (int k = 0; k < BitBoard.SYMMETRIES; k++) {
+                    int cell = board.symmetry[k][board.index(row, col)];
+                    results[board.row(cell) * 4 + board.col(cell)] = results[row * 4 + col];
+                }
+        Path file = Files.createTempFile("openings", ".txt");
+        try {
+            new OpeningBook(4, 3, ProofNumberSearch.WIN, results).save(file);
+            OpeningBook book = OpeningBook.load(file);
+            assertEquals(4, book.size);
+            assertEquals(3, book.winLength);
+            assertEquals(ProofNumberSearch.WIN, book.emptyResult);
+            for (int row = 0; row < 4; row++)
+                for (int col = 0; col < 4; col++)
+                    assertEquals(results[row * 4 + col], book.result(row, col), "(" + row + ", " + col + ")");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Solves random positions without a winner and compares with minimax.
+     */
+    private static void checkRandomPositions(int size, int winLength, int minStones, int maxStones, int positions) {
+        Random random = new Random(size * 31 + winLength);
+        ProofNumberSearch solver = new ProofNumberSearch(16);
+        Map<Long, Integer> memo = new HashMap<>();
+        int checked = 0;
+        while (checked < positions) {
+            int[] cells = new int[size * size];
+            BitBoard board = new BitBoard(size, winLength);
+            int stones = minStones + random.nextInt(maxStones - minStones + 1);
+            for (int k = 0; k < stones; k++) {
+                int cell;
+                do {
+                    cell = random.nextInt(cells.length);
+                } while (cells[cell] != 0);
+                int side = k % 2;
+                cells[cell] = side + 1;
+                board.set(board.index(cell / size, cell % size), side);
+            }
+            if (board.checkWin(BitBoard.X) || board.checkWin(BitBoard.O)) continue;
+            int side = stones % 2;
+            assertEquals(minimax(cells, size, winLength, side, memo), solver.solve(board, side),
+                    size + "x" + size + ", " + winLength + " in a row, position " + checked);
+            checked++;
+        }
+    }
+
+    /**
+     * Exact result for the side to move by exhaustive search over a plain cell array,
+     * where 0 is empty and 1 or 2 is a stone of side 0 or 1.
+     */
+    private static int minimax(int[] cells, int size, int winLength, int side, Map<Long, Integer> memo) {
+        long key = 0;
+        for (int c : cells) key = key * 3 + c;
+        key = key * 2 + side;
+        Integer known = memo.get(key);
+        if (known != null) return known;
+        int best = ProofNumberSearch.LOSS;
+        boolean moved = false;
+        for (int i = 0; i < cells.length && best != ProofNumberSearch.WIN; i++) {
+            if (cells[i] != 0) continue;
+            moved = true;
+            cells[i] = side + 1;
+            int result = wins(cells, size, winLength, side + 1) ? ProofNumberSearch.WIN
+                    : -minimax(cells, size, winLength, 1 - side, memo);
+            cells[i] = 0;
+            best = Math.max(best, result);
+        }
+        if (!moved) best = ProofNumberSearch.DRAW;
+        memo.put(key, best);
+        return best;
+    }
+
+    private static boolean wins(int[] cells, int size, int winLength, int stone) {
+        int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                for (int[] step : steps) {
+                    int k = 0;
+                    while (k < winLength) {
+                        int rr = r + step[0] * k, cc = c + step[1] * k;
+                        if (rr < 0 || rr >= size || cc < 0 || cc >= size || cells[rr * size + cc] != stone) break;
+                        k++;
+                    }
+                    if (k == winLength) return true;
+                }
+        return false;
+    }
+}